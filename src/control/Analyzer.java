@@ -0,0 +1,322 @@
+package core;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/** Analyzes a file of number lines offline, one line of text per number
+ *  line, with the numbers separated by spaces, tabs or commas. For each
+ *  line it writes a CSV row with the line's number in the file, its
+ *  length, the best first move, the margin the first player wins by with
+ *  best play on both sides, and the margin a greedy first player, who
+ *  always grabs the larger end, wins by against an opponent who plays
+ *  best against greedy play. Lines are solved in O(N) memory (see
+ *  Evaluation), so lines of any length that fits in memory can be
+ *  analyzed.
+ *  <p>
+ *  The file is read through one reusable buffer and cut into batches of
+ *  lines that are solved on a pool of threads. Only a few batches per
+ *  thread are ever in memory, and their rows are written in file order as
+ *  they finish, so files of any size can be analyzed. */
+public class Analyzer {
+
+    /** Analyzes the file named in ARGS, as in {@link #usage}. */
+    public static void main(String... args) {
+        String options = "--threads= --output= --={1}";
+        CommandArgs cArgs = new CommandArgs(options, args);
+        if (!cArgs.ok()) {
+            usage();
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (cArgs.containsKey("--threads")) {
+            threads = cArgs.getInt("--threads");
+            if (threads < 1) {
+                usage();
+            }
+        }
+        File input = new File(cArgs.get("--").get(0));
+        Analyzer analyzer = new Analyzer(threads);
+        long start = System.nanoTime();
+        try (Writer out = cArgs.containsKey("--output")
+                 ? Files.newBufferedWriter(new File(cArgs.getLast("--output")).toPath())
+                 : new BufferedWriter(new OutputStreamWriter(System.out,
+                                                             StandardCharsets.US_ASCII))) {
+            analyzer.analyze(input, out);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.printf("%s: %s\n", input, e.getMessage());
+            System.exit(1);
+        } finally {
+            analyzer.shutdown();
+        }
+        System.err.printf("Analyzed %d lines in %.2f seconds\n", analyzer._lines,
+                          (System.nanoTime() - start) / 1e9);
+    }
+
+    /** An analyzer that solves lines on THREADS threads. */
+    public Analyzer(int threads) {
+        _threads = threads;
+        _pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Analyzer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Writes the CSV analysis of every line of INPUT to OUT. Throws
+     *  IllegalArgumentException if INPUT holds anything but numbers and
+     *  separators. */
+    public void analyze(File input, Writer out) throws IOException {
+        out.write(HEADER);
+        ArrayDeque<Future<String>> pending = new ArrayDeque<>();
+        try (FileChannel channel = FileChannel.open(input.toPath(),
+                                                    StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+            int[] numbers = new int[16];
+            int count = 0;
+            long value = 0;
+            boolean inNumber = false, negative = false;
+            long lineNumber = 1;
+            Batch batch = new Batch();
+            while (channel.read(buffer) >= 0) {
+                byte[] bytes = buffer.array();
+                int end = buffer.position();
+                for (int i = 0; i < end; i++) {
+                    byte b = bytes[i];
+                    if (b >= '0' && b <= '9') {
+                        value = 10 * value + (b - '0');
+                        if (value > MAX_MAGNITUDE) {
+                            throw new IllegalArgumentException(
+                                String.format("line %d: number out of range", lineNumber));
+                        }
+                        inNumber = true;
+                        continue;
+                    } else if (b == '-' && !inNumber && !negative) {
+                        negative = true;
+                        continue;
+                    } else if (b != ' ' && b != '\t' && b != ',' && b != '\r'
+                               && b != '\n') {
+                        throw new IllegalArgumentException(
+                            String.format("line %d: unexpected character '%c'",
+                                          lineNumber, (char) b));
+                    }
+                    if (inNumber || negative) {
+                        if (count == numbers.length) {
+                            numbers = Arrays.copyOf(numbers, 2 * count);
+                        }
+                        numbers[count++] = number(value, inNumber, negative, lineNumber);
+                    }
+                    value = 0;
+                    inNumber = negative = false;
+                    if (b == '\n') {
+                        if (count > 0) {
+                            batch.add(lineNumber, Arrays.copyOf(numbers, count));
+                            count = 0;
+                        }
+                        lineNumber += 1;
+                        if (batch.full()) {
+                            submit(batch, pending, out);
+                            batch = new Batch();
+                        }
+                    }
+                }
+                buffer.clear();
+            }
+            if (inNumber || negative) {
+                if (count == numbers.length) {
+                    numbers = Arrays.copyOf(numbers, count + 1);
+                }
+                numbers[count++] = number(value, inNumber, negative, lineNumber);
+            }
+            if (count > 0) { //The last line had no newline.
+                batch.add(lineNumber, Arrays.copyOf(numbers, count));
+            }
+            submit(batch, pending, out);
+            while (!pending.isEmpty()) {
+                write(pending.removeFirst(), out);
+            }
+        }
+    }
+
+    /** Stops this analyzer's threads. */
+    public void shutdown() {
+        _pool.shutdownNow();
+    }
+
+    /** @return the number with magnitude VALUE, negated if NEGATIVE, that
+     *  was read on line LINENUMBER. Throws IllegalArgumentException if it
+     *  had no DIGITS or doesn't fit in an int. */
+    private static int number(long value, boolean digits, boolean negative,
+                              long lineNumber) {
+        if (!digits) {
+            throw new IllegalArgumentException(
+                String.format("line %d: '-' without a number", lineNumber));
+        } else if (!negative && value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                String.format("line %d: number out of range", lineNumber));
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    /** Starts solving BATCH, adding it to the PENDING batches, after writing
+     *  the oldest of them to OUT if too many are pending already. */
+    private void submit(Batch batch, ArrayDeque<Future<String>> pending,
+                        Writer out) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (pending.size() >= BATCHES_PER_THREAD * _threads) {
+            write(pending.removeFirst(), out);
+        }
+        pending.addLast(_pool.submit(batch::analyze));
+        _lines += batch.size();
+    }
+
+    /** Writes the rows of the batch whose result is RESULT to OUT, waiting
+     *  for it if need be. */
+    private static void write(Future<String> result, Writer out) throws IOException {
+        try {
+            out.write(result.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalArgumentException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /** Appends the CSV row of the line NUMBERS, line LINENUMBER of its file,
+     *  to OUT. */
+    static void analyze(long lineNumber, int[] numbers, StringBuilder out) {
+        Evaluation evaluation = Evaluation.of(numbers);
+        long margin = greedyMargin(numbers);
+        out.append(lineNumber).append(',').append(numbers.length).append(',')
+            .append(evaluation.bestMove()).append(',')
+            .append(evaluation.value()).append(',').append(margin).append(',')
+            .append(margin < 0).append('\n');
+    }
+
+    /** Returns the margin a greedy first player, who grabs the larger end
+     *  (the left one if they are equal), wins by on NUMBERS against an
+     *  opponent who plays best against greedy play. Sweeps interval lengths
+     *  like Evaluation, with one row for each player to move, in longs so
+     *  that margins never overflow. */
+    static long greedyMargin(int[] numbers) {
+        int n = numbers.length;
+        long[] greedy = new long[n], opponent = new long[n]; //The mover's margin on the interval of the current length starting at L.
+        for (int i = 0; i < n; i++) {
+            greedy[i] = opponent[i] = numbers[i];
+        }
+        for (int length = 2; length <= n; length++) {
+            for (int left = 0, right = length - 1; right < n; left++, right++) {
+                long greedyValue = numbers[left] >= numbers[right]
+                    ? numbers[left] - opponent[left + 1]
+                    : numbers[right] - opponent[left];
+                opponent[left] = Math.max(numbers[left] - greedy[left + 1],
+                                          numbers[right] - greedy[left]);
+                greedy[left] = greedyValue;
+            }
+        }
+        return n == 0 ? 0 : greedy[0];
+    }
+
+    /** A description of the command line format. */
+    public static void usage() {
+        System.out.print("\n--Analyzer usage instructions--\n" +
+                "[ --threads=P ] [ --output=CSV ] FILE\n" +
+                "FILE holds one number line per line of text.\n" +
+                "-P is the number of threads lines are solved on. " +
+                "The number of processors by default.\n" +
+                "-CSV is where the analysis is written. The standard output by default.\n");
+        System.exit(1);
+    }
+
+    /** Lines read from a file, to be analyzed together. */
+    private static class Batch {
+
+        /** An empty batch. */
+        Batch() {
+            _lineNumbers = new long[BATCH_LINES];
+            _lines = new int[BATCH_LINES][];
+        }
+
+        /** Adds NUMBERS, line LINENUMBER of its file, to this batch. */
+        void add(long lineNumber, int[] numbers) {
+            _lineNumbers[_size] = lineNumber;
+            _lines[_size] = numbers;
+            _size += 1;
+            _numbers += numbers.length;
+        }
+
+        /** @return true iff no more lines should be added. */
+        boolean full() {
+            return _size == BATCH_LINES || _numbers >= BATCH_NUMBERS;
+        }
+
+        /** @return true iff this batch has no lines. */
+        boolean isEmpty() {
+            return _size == 0;
+        }
+
+        /** @return the number of lines in this batch. */
+        int size() {
+            return _size;
+        }
+
+        /** @return the CSV rows of this batch's lines. */
+        String analyze() {
+            StringBuilder out = new StringBuilder();
+            for (int i = 0; i < _size; i++) {
+                Analyzer.analyze(_lineNumbers[i], _lines[i], out);
+                _lines[i] = null; //Let the line go as soon as it's done.
+            }
+            return out.toString();
+        }
+
+        /** The lines and their numbers in the file. */
+        private final long[] _lineNumbers;
+        private final int[][] _lines;
+
+        /** The number of lines, and the total length of the lines. */
+        private int _size;
+        private long _numbers;
+    }
+
+    /** The first row written. */
+    static final String HEADER =
+        "line,length,best_move,optimal_margin,greedy_margin,greedy_loses\n";
+
+    /** The largest magnitude of a number, which is that of
+     *  Integer.MIN_VALUE. */
+    private static final long MAX_MAGNITUDE = -(long) Integer.MIN_VALUE;
+
+    /** The size of the buffer the file is read through. */
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    /** A batch holds at most BATCH_LINES lines, and is ended by the line
+     *  that brings its total length to BATCH_NUMBERS. */
+    private static final int BATCH_LINES = 256, BATCH_NUMBERS = 1 << 16;
+
+    /** The number of batches per thread that may be in memory at once. */
+    private static final int BATCHES_PER_THREAD = 2;
+
+    /** The number of threads lines are solved on, and their pool. */
+    private final int _threads;
+    private final ExecutorService _pool;
+
+    /** The number of lines analyzed. */
+    private long _lines;
+
+}
@@ -0,0 +1,208 @@
+package core;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Micro-benchmarks of the move finding engines, NumberLine operations and
+ *  whole headless games. Each benchmark is warmed up, then run in batches
+ *  until enough time has passed, and reported as nanoseconds and bytes
+ *  allocated per operation. */
+public class Benchmarks {
+
+    /** Runs the benchmarks described by ARGS, as in {@link #usage}. */
+    public static void main(String... args) {
+        String options = "--filter= --time=";
+        CommandArgs cArgs = new CommandArgs(options, args);
+        if (!cArgs.ok()) {
+            usage();
+        }
+        String filter = "";
+        long millis = 1000;
+        if (cArgs.containsKey("--filter")) {
+            filter = cArgs.getLast("--filter");
+        }
+        if (cArgs.containsKey("--time")) {
+            millis = cArgs.getInt("--time");
+            if (millis <= 0) {
+                usage();
+            }
+        }
+        System.out.printf("%-32s %14s %14s\n", "Benchmark", "ns/op", "bytes/op");
+        for (Benchmark benchmark : benchmarks()) {
+            if (benchmark._name.contains(filter)) {
+                benchmark.measure(millis * 1000000);
+            }
+        }
+    }
+
+    /** @return every benchmark. */
+    private static List<Benchmark> benchmarks() {
+        List<Benchmark> result = new ArrayList<Benchmark>();
+        for (int length : LENGTHS) {
+            for (int difficulty = 1; difficulty <= 3; difficulty++) {
+                result.add(moveBenchmark(difficulty, length));
+            }
+        }
+        for (int length : LENGTHS) {
+            final NumberLine line = game(length).getNumberLine();
+            result.add(new Benchmark("NumberLine.grab/ungrab " + length) {
+                @Override
+                long op(int i) {
+                    int side = i & 1;
+                    int num = line.grab(PlayerName.P1, side);
+                    line.ungrab(PlayerName.P1, side);
+                    return num;
+                }
+            });
+            result.add(new Benchmark("NumberLine.get " + length) {
+                @Override
+                long op(int i) {
+                    return line.get(i % line.size());
+                }
+            });
+            result.add(new Benchmark("NumberLine.sum " + length) {
+                @Override
+                long op(int i) {
+                    int from = i % line.size();
+                    return line.sum(from, line.size() - from / 2);
+                }
+            });
+            result.add(new Benchmark("NumberLine.copy " + length) {
+                @Override
+                long op(int i) {
+                    return line.copy().size();
+                }
+            });
+            result.add(new Benchmark("NumberLine.toString " + length) {
+                @Override
+                long op(int i) {
+                    return line.toString().length();
+                }
+            });
+        }
+        result.add(new Benchmark("Game.simulate hard/medium 20") {
+            @Override
+            long op(int i) {
+                Game game = new Game(i, 20, 10, 3, 2);
+                game.simulate();
+                return game.getNumberLine().getP1Total();
+            }
+        });
+        return result;
+    }
+
+    /** @return a benchmark of the getMove of an engine of DIFFICULTY on a
+     *  line of LENGTH numbers. The hard engine's table is cleared before
+     *  every move, so that each search starts cold. */
+    private static Benchmark moveBenchmark(int difficulty, int length) {
+        final Game game = game(length);
+        final MoveFinder moveFinder;
+        final TranspositionTable table;
+        String name;
+        if (difficulty == 1) {
+            moveFinder = new EasyMoveFinder(game.getPlayer2(), game);
+            table = null;
+            name = "EasyMoveFinder.getMove ";
+        } else if (difficulty == 2) {
+            moveFinder = new MediumMoveFinder(game.getPlayer2(), game);
+            table = null;
+            name = "MediumMoveFinder.getMove ";
+        } else {
+            table = new TranspositionTable(Math.min(HARD_TABLE_BITS,
+                    TranspositionTable.bitsFor(length)));
+            moveFinder = new HardMoveFinder(game.getPlayer2(), game, table, 1);
+            name = "HardMoveFinder.getMove ";
+        }
+        return new Benchmark(name + length) {
+            @Override
+            long op(int i) {
+                if (table != null) {
+                    table.clear();
+                }
+                return moveFinder.getMove();
+            }
+        };
+    }
+
+    /** @return a headless game on a line of LENGTH numbers. */
+    private static Game game(int length) {
+        return new Game(SEED, length, 10, 1, 1);
+    }
+
+    /** A benchmarked operation. */
+    private abstract static class Benchmark {
+
+        /** A benchmark called NAME. */
+        Benchmark(String name) {
+            _name = name;
+        }
+
+        /** Performs the I'th operation and returns a result that depends
+         *  on it, so that it can't be optimized away. */
+        abstract long op(int i);
+
+        /** Warms this benchmark up, then runs it for about NANOS
+         *  nanoseconds and prints its results. */
+        void measure(long nanos) {
+            run(nanos / 2);
+            com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long thread = Thread.currentThread().getId();
+            long bytes = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            long ops = run(nanos);
+            long elapsed = System.nanoTime() - start;
+            bytes = threads.getThreadAllocatedBytes(thread) - bytes;
+            System.out.printf("%-32s %14.1f %14.1f\n", _name,
+                              (double) elapsed / ops, (double) bytes / ops);
+        }
+
+        /** Runs batches of operations until NANOS nanoseconds have passed,
+         *  and returns the number of operations run. */
+        private long run(long nanos) {
+            long ops = 0, sum = 0;
+            int batch = 1;
+            long end = System.nanoTime() + nanos;
+            while (System.nanoTime() < end) {
+                for (int i = 0; i < batch; i++) {
+                    sum += op(i);
+                }
+                ops += batch;
+                batch = Math.min(batch * 2, MAX_BATCH);
+            }
+            _sink += sum;
+            return ops;
+        }
+
+        /** This benchmark's name. */
+        private final String _name;
+    }
+
+    /** A description of the command line format. */
+    public static void usage() {
+        System.out.print("\n--Benchmarks usage instructions--\n" +
+                "[ --filter=F ] [ --time=T ]\n" +
+                "-F runs only the benchmarks whose names contain F. All by default.\n" +
+                "-T is the time in milliseconds each benchmark is measured for. " +
+                "1000 by default.\n");
+        System.exit(1);
+    }
+
+    /** The line lengths benchmarked. */
+    private static final int[] LENGTHS = { 10, 100, 1000, 10000 };
+
+    /** The seed of every benchmarked line. */
+    private static final int SEED = 42;
+
+    /** The most bits in the size of the hard engine's table, which is
+     *  kept small because it is cleared before every move. */
+    private static final int HARD_TABLE_BITS = 16;
+
+    /** The most operations run between looks at the clock. */
+    private static final int MAX_BATCH = 1 << 12;
+
+    /** Receives the benchmarks' results. */
+    static volatile long _sink;
+
+}
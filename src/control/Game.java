@@ -3,6 +3,11 @@
  */
 package core;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.Random;
 import java.util.Scanner;
 import java.util.regex.Matcher;
@@ -20,19 +25,25 @@ public class Game {
      * @param max the maximum number value.
      * @param time the total time alloted to a player's moves.
      * @param difficulty the ai difficulty.
+     * @param threads the number of threads the ai searches with.
      * @param frenzied frenzy mode switch. 
      * @param timed timed mode switch. 
      * @param passing is true iff this game allows turn passing. 
+     * @param lazy is true iff each number is generated only when it is read.
+     * @param pondering is true iff the ai thinks on its opponent's time.
      * @param singlePlayer ai enabled switch.
      * @param player2 indicates that the human player is player2. 
      * @param guiEnabled gui enabled switch. 
+     * @param cache is where solved lines are kept, or null.
      */
     public Game(int seed, int length, int max, double time,
-            int difficulty, boolean frenzied, boolean timed, boolean passing,
-            boolean singlePlayer, boolean isPlayer2, boolean guiEnabled) {
+            int difficulty, int threads, boolean frenzied, boolean timed, boolean passing,
+            boolean lazy, boolean pondering, boolean singlePlayer, boolean isPlayer2, boolean guiEnabled,
+            SolutionCache cache) {
         _seed = seed; _length = length; _max = max; _time = time;
-        _difficulty = difficulty;
+        _difficulty = difficulty; _threads = threads;
         _frenzied = frenzied; ;_passing = passing; _timed = timed;
+        _lazy = lazy; _pondering = pondering;
         _singlePlayer = singlePlayer; _isPlayer2 = isPlayer2;
         _guiEnabled = guiEnabled;
         if (seed < 0) {
@@ -44,14 +55,66 @@ public class Game {
         if (_singlePlayer) {
             if (_isPlayer2) {
                 _player2 = new HumanPlayer(this, P2);
-                _player1 = new MachinePlayer(this, P1, _difficulty);
+                _player1 = new MachinePlayer(this, P1, _difficulty, _threads,
+                        _pondering);
             } else {
                 _player1 = new HumanPlayer(this, P1);
-                _player2 = new MachinePlayer(this, P2, _difficulty);
+                _player2 = new MachinePlayer(this, P2, _difficulty, _threads,
+                        _pondering);
             }
         } else {
             _player1 = new HumanPlayer(this, P1); _player2 = new HumanPlayer(this, P2);
         }
+        if (_lazy) { //Numbers are computed from the seed and their index, so the line costs nothing to make.
+            _numberLine = new NumberLine(new LazyNumberStore(_seed, _length, _max)
+                    , _player1, _player2);
+        } else {
+            _numberLine = new NumberLine(_length, _max, _random
+                    , _player1, _player2);
+        }
+        _cache = cache;
+    }
+    
+    /** A new headless game of Number Grab between two machine players,
+     *  which is played with {@link #simulate} and does no console input or
+     *  output.
+     * @param seed the random number generator seed.
+     * @param length the number line length.
+     * @param max the maximum number value.
+     * @param difficulty1 player 1's ai difficulty.
+     * @param difficulty2 player 2's ai difficulty.
+     */
+    public Game(int seed, int length, int max, int difficulty1, int difficulty2) {
+        _seed = seed; _length = length; _max = max;
+        _time = Double.POSITIVE_INFINITY;
+        _difficulty = difficulty1; _threads = 1;
+        _headless = true;
+        _random = new Random(_seed);
+        _player1 = new MachinePlayer(this, P1, difficulty1);
+        _player2 = new MachinePlayer(this, P2, difficulty2);
+        _numberLine = new NumberLine(_length, _max, _random
+                , _player1, _player2);
+    }
+    
+    /** A new headless game of Number Grab between a remote player 1, whose
+     *  moves are made with {@link #move}, and a machine player 2, whose
+     *  moves are made with {@link #reply}, as hosted by GameServer. It does
+     *  no console input or output.
+     * @param seed the random number generator seed.
+     * @param length the number line length.
+     * @param max the maximum number value.
+     * @param difficulty player 2's ai difficulty.
+     * @param passing is true iff this game allows turn passing.
+     */
+    public Game(int seed, int length, int max, int difficulty, boolean passing) {
+        _seed = seed; _length = length; _max = max;
+        _time = Double.POSITIVE_INFINITY;
+        _difficulty = difficulty; _threads = 1;
+        _passing = passing;
+        _headless = true;
+        _random = new Random(_seed);
+        _player1 = new HumanPlayer(this, P1); //Never asked for a move.
+        _player2 = new MachinePlayer(this, P2, difficulty);
         _numberLine = new NumberLine(_length, _max, _random
                 , _player1, _player2);
     }
@@ -64,7 +127,7 @@ public class Game {
         String input = inp.nextLine();
         Matcher mat = pat.matcher(input);
         if (mat.matches()) {
-            if (input.equals("2") && !getPassing()) {
+            if (mat.group(1).equals("2") && !getPassing()) {
                 System.out.println("Passing is not allowed.");
                 return getMove();
             }
@@ -88,8 +151,10 @@ public class Game {
         } else if (input.charAt(0) == 'n') {
             System.out.printf("%s has started a new game.\n", _numberLine.turn());
             Game newGame = new Game(getRandom().nextInt(), _length, _max, _time,
-            _difficulty, _frenzied, _timed, _passing,
-            _singlePlayer, _isPlayer2, _guiEnabled);
+            _difficulty, _threads, _frenzied, _timed, _passing, _lazy, _pondering,
+            _singlePlayer, _isPlayer2, _guiEnabled, _cache);
+            newGame.setWindow(_window);
+            newGame.setRecordFile(_recordFile);
             newGame.play();
         } else if (input.charAt(0) == 't') {
             System.out.printf("Player 1 has %.2f seconds left " +
@@ -101,10 +166,13 @@ public class Game {
             		"Initial line length: %d\n" +
             		"Maximum number value: %d\n" +
             		"Total time allowed: %.2f\n" +
-            		"AI difficulty: %d\n\n"
-            		, _seed, _length, _max, _time, _difficulty);
+            		"AI difficulty: %d\n" +
+            		"AI threads: %d\n\n"
+            		, _seed, _length, _max, _time, _difficulty, _threads);
         } else if (input.charAt(0) == 'r') {
             Main.rules();
+        } else if (input.equals("stats")) {
+            printStats();
         } else if (input.charAt(0) == 's') {
             System.out.println(getNumberLine());
         } else if (input.charAt(0) == 'c') {
@@ -117,7 +185,8 @@ public class Game {
             		"t : show the remaining time for both players. \n" +
             		"p : show game parameters.\n" +
             		"r : print the game rules.\n" +
-            		"s : print the number line.\n\n");
+            		"s : print the number line.\n" +
+            		"stats : show how much searching the AI has done.\n\n");
         } else {
             System.out.println("Enter 0, 1 or 2 to make a move," +
                     " or 'c' for a list of commands.");
@@ -129,31 +198,45 @@ public class Game {
     public void play() {
         inp = new Scanner(System.in);
         Stopwatch stopwatch = new Stopwatch();
+        if (_recordFile != null) {
+            setRecord(new GameRecord(_seed, _length, _max, modes()));
+        }
+        for (Player player : new Player[] { _player1, _player2 }) { //Keep the distribution of move times for the end of the game.
+            player.setLatency(new LatencyHistogram());
+            player.setEngineLatency(new LatencyHistogram());
+        }
         while (!gameOver()) {
-            System.out.println(_numberLine);
-            if (_timed) stopwatch.start(); //Start the stopwatch if mode is enabled
+            printNumberLine();
+            stopwatch.start();
+            _player2.startPondering(_numberLine); //Let player2 think ahead on player1's time.
             _player1.makeMove(_numberLine); //Get a move from player1 and perform it
-            if (_timed) { //If timed mode is enabled, add the elapsed time to the players running total and reset the stopwatch. 
-                _player1.setTime(_player1.getTime() +
-                        (double) stopwatch.getElapsed() / (double) 1000); //Stopwatch gives time in milliseconds, so divide by 1000 to give seconds
-                stopwatch.stop();
-                stopwatch.reset();
+            _player2.stopPondering();
+            long nanos = stopwatch.stopNanos();
+            _player1.getLatency().record(nanos);
+            if (_timed) { //If timed mode is enabled, add the elapsed time to the players running total. 
+                _player1.setTime(_player1.getTime() + nanos / 1e9); //Stopwatch gives time in nanoseconds, so divide by 1e9 to give seconds
             }
-            System.out.println(_numberLine);
+            printNumberLine();
             if (gameOver()) { //Check again to see if the game is over. 
                 break;
             }
             _numberLine.swap(); //Swap NumberLine control to player2. 
-            if (_timed) stopwatch.start(); //Perform similar timed mode procedure to above.
+            stopwatch.start(); //Perform similar timing procedure to above.
+            _player1.startPondering(_numberLine);
             _player2.makeMove(_numberLine);
+            _player1.stopPondering();
+            nanos = stopwatch.stopNanos();
+            _player2.getLatency().record(nanos);
             if (_timed) {
-                _player2.setTime(_player2.getTime() +
-                        (double) stopwatch.getElapsed() / (double) 1000);
-                stopwatch.stop();
-                stopwatch.reset();
+                _player2.setTime(_player2.getTime() + nanos / 1e9);
             }
             _numberLine.swap(); //Swap NumberLine control back to player1. 
         }
+        if (passedOut()) {
+            System.out.println("Both players passed! The numbers left stay on the line.");
+        } else if (!_numberLine.isEmpty() && !_timed) {
+            System.out.println("The numbers left can't change the result!");
+        }
         boolean timeCheck = false; //A switch to keep from printing redundant / conflicting / incorrect victory statements. 
         if (_timed) {              //Keeps the program from declaring a player the winner if they have a higher score even if they ran out of time.
             if (_player1.getTime() >_time && _player2.getTime() > _time) {
@@ -179,21 +262,208 @@ public class Game {
         System.out.printf("Final scores: P1 - %d\n" +
         		"              P2 - %d\n\n", getNumberLine().getP1Total()
         		, getNumberLine().getP2Total());
+        printLatencies();
+        if (_player1.getStats() != null || _player2.getStats() != null) {
+            printStats();
+        }
+        if (_record != null) {
+            _record.finish(getNumberLine().getP1Total(), getNumberLine().getP2Total());
+            saveRecord();
+        }
         System.exit(1);
     }
     
+    /** Append this game's record to the record file. */
+    private void saveRecord() {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(_recordFile, true)))) {
+            _record.write(out);
+        } catch (IOException e) {
+            System.out.printf("Could not record the game in %s: %s\n", _recordFile,
+                              e.getMessage());
+        }
+    }
+    
+    /** @return the GameRecord mode flags of this game. */
+    private int modes() {
+        return (_frenzied ? GameRecord.FRENZIED : 0) | (_timed ? GameRecord.TIMED : 0)
+            | (_passing ? GameRecord.PASSING : 0) | (_lazy ? GameRecord.LAZY : 0);
+    }
+    
+    /** Append a record of each game played from this one to FILE, or
+     *  don't record them if FILE is null. */
+    public void setRecordFile(File file) {
+        _recordFile = file;
+    }
+    
+    /** Record the moves of this game in RECORD, or nowhere if it is
+     *  null. */
+    public void setRecord(GameRecord record) {
+        _record = record;
+    }
+    
+    /** @return the record of this game's moves, or null if they aren't
+     *  recorded. */
+    public GameRecord getRecord() {
+        return _record;
+    }
+    
+    /** Adds MOVE, one of the GameRecord moves, to this game's record if it
+     *  is being recorded. Called by the players as they move. */
+    public void recordMove(int move) {
+        if (_record != null) {
+            _record.add(move);
+        }
+    }
+    
+    /** Print the distribution of the times each player took to move, and
+     *  of the times their engines took to choose moves, if they have any. */
+    private void printLatencies() {
+        for (Player player : new Player[] { _player1, _player2 }) {
+            System.out.printf("%s moves: %s\n", player.name(), player.getLatency());
+            if (player.getEngineLatency() != null) {
+                System.out.printf("%s engine: %s\n", player.name(),
+                                  player.getEngineLatency());
+            }
+        }
+    }
+    
+    /** Print the search statistics of each player that searches. */
+    private void printStats() {
+        boolean any = false;
+        for (Player player : new Player[] { _player1, _player2 }) {
+            SearchStats stats = player.getStats();
+            if (stats != null) {
+                System.out.printf("%s search: %s\n", player.name(), stats);
+                any = true;
+            }
+        }
+        if (!any) {
+            System.out.println("Neither player searches.");
+        }
+    }
+    
+    /** Play this headless game to the end, without any console input or
+     *  output. The result is left in the game's NumberLine. */
+    public void simulate() {
+        simulate(null, null);
+    }
+    
+    /** Play this headless game to the end, like simulate(), recording the
+     *  time each of player 1's and player 2's moves takes in P1LATENCY and
+     *  P2LATENCY, unless they are null. Each player's own latency
+     *  histogram, if it has one, is replaced. */
+    public void simulate(LatencyHistogram p1Latency, LatencyHistogram p2Latency) {
+        if (p1Latency != null) {
+            _player1.setLatency(p1Latency);
+        }
+        if (p2Latency != null) {
+            _player2.setLatency(p2Latency);
+        }
+        while (!_numberLine.isEmpty() && !passedOut()) {
+            long start = System.nanoTime();
+            _player1.makeMove(_numberLine);
+            LatencyHistogram latency = _player1.getLatency();
+            if (latency != null) {
+                latency.record(System.nanoTime() - start);
+            }
+            if (_numberLine.isEmpty() || passedOut()) {
+                break;
+            }
+            _numberLine.swap();
+            start = System.nanoTime();
+            _player2.makeMove(_numberLine);
+            latency = _player2.getLatency();
+            if (latency != null) {
+                latency.record(System.nanoTime() - start);
+            }
+            _numberLine.swap();
+        }
+        if (_record != null) {
+            _record.finish(_numberLine.getP1Total(), _numberLine.getP2Total());
+        }
+    }
+    
+    /** Prints this game's number line, showing only the numbers at its
+     *  ends if a window is set. The text is built in a buffer that is
+     *  reused for every print. */
+    private void printNumberLine() {
+        _display.setLength(0);
+        _numberLine.render(_display, _window).append('\n');
+        System.out.append(_display);
+    }
+    
+    /** Show only the WINDOW numbers at each end of the number line between
+     *  moves, or the whole line if WINDOW is 0. */
+    public void setWindow(int window) {
+        _window = window;
+    }
+    
+    /** Makes MOVE for player 1 of a game made for GameServer: 0 to grab
+     *  from the left, 1 from the right, or 2 to pass. Returns false, and
+     *  makes no move, if the game is over or MOVE is not allowed. */
+    public boolean move(int move) {
+        if (gameOver() || move < 0 || move > 2 || (move == 2 && !_passing)) {
+            return false;
+        } else if (move == 2) {
+            _numberLine.pass(P1);
+        } else {
+            _numberLine.grab(P1, move);
+        }
+        recordMove(move);
+        return true;
+    }
+    
+    /** Has player 2 of a game made for GameServer make its move, and
+     *  returns the move made, as for move. The game must not be over. */
+    public int reply() {
+        int left = _numberLine.leftIndex(), right = _numberLine.rightIndex();
+        _numberLine.swap();
+        _player2.makeMove(_numberLine);
+        _numberLine.swap();
+        if (_numberLine.leftIndex() != left) {
+            return 0;
+        } else if (_numberLine.rightIndex() != right) {
+            return 1;
+        } else {
+            return 2;
+        }
+    }
+    
+    /** @return true iff this game is over. */
+    public boolean isOver() {
+        return gameOver();
+    }
+    
     /** @return if this game is over. */
     private boolean gameOver() {
-        if (_numberLine.isEmpty()) {
-            return true; //Game is over if line has no more numbers.
+        if (_numberLine.isEmpty() || passedOut()) {
+            return true; //Game is over if line has no more numbers, or both players passed.
         } else if (_timed) { //Only check this if timed mode is enabled.
             return _player1.getTime() > _time && _player2.getTime() > _time; //Ensure both players have time left
         } else {
-            return false; //Serves as the counterpart to the first 'if' clause, since it will never be reached if timed mode is enabled. 
+            return decided(_numberLine); //Serves as the counterpart to the first 'if' clause, since it will never be reached if timed mode is enabled. 
         }
         
     }
     
+    /** @return true iff passing is enabled and both players passed in a
+     *  row, which ends the game. Without this rule a game in which neither
+     *  player wants to grab would never end. */
+    private boolean passedOut() {
+        return _passing && _numberLine.passes() >= 2;
+    }
+    
+    /** @return true iff one player leads by more than the total of the
+     *  numbers left on NUMBERLINE, so the rest of the game can't change
+     *  who wins. Only known in O(1) time for lines with prefix sums, and
+     *  otherwise taken to be false. */
+    static boolean decided(NumberLine numberLine) {
+        return numberLine.hasPrefixSums()
+            && Math.abs(numberLine.getP1Total() - numberLine.getP2Total())
+               > numberLine.remainingTotal();
+    }
+    
     /** @return the opponent of PLAYER. */
     public Player opponent(Player player) {
         if (player.name() == P1) {
@@ -218,6 +488,21 @@ public class Game {
         return _passing;
     }
     
+    /** @return the total time in seconds alloted to a player's moves. */
+    public double getTimeLimit() {
+        return _time;
+    }
+    
+    /** @return true iff this game does no console input or output. */
+    public boolean getHeadless() {
+        return _headless;
+    }
+    
+    /** @return the length of this game's number line at the start. */
+    public int getLength() {
+        return _length;
+    }
+    
     /** @return true iff this game is timed. */
     public boolean getTimed() {
         return _timed;
@@ -233,19 +518,63 @@ public class Game {
         return _player2;
     }
     
+    /** @return the solution of this game's line as it was at the start
+     *  of the game. The line is looked up in the cache the first time this
+     *  is called, and solved and added to the cache if it isn't there, so
+     *  games whose players never ask for the solution never touch the
+     *  cache. */
+    public Solution getSolution() {
+        if (_solution == null) {
+            NumberLine start = _numberLine.copy();
+            while (start.leftIndex() > 0) { //Put back any numbers already grabbed.
+                start.ungrab(P1, 0);
+            }
+            while (start.rightIndex() < _length - 1) {
+                start.ungrab(P1, 1);
+            }
+            int[] numbers = start.getNumbers();
+            if (cached()) {
+                _solution = _cache.load(numbers); //Null if this line hasn't been solved before.
+            }
+            if (_solution == null) {
+                _solution = Solution.solve(numbers, _passing);
+                if (cached()) {
+                    _cache.store(_solution);
+                }
+            }
+        }
+        return _solution;
+    }
+    
+    /** @return true iff this game's solution is kept in the cache. Only
+     *  lines that a Solution fits are cached, and never lazy lines, whose
+     *  numbers would all have to be made to look them up, nor games with
+     *  passing. */
+    private boolean cached() {
+        return _cache != null && !_passing && !_lazy && Solution.fits(_length);
+    }
+    
     /** @return the NumberLine this game uses. */
     public NumberLine getNumberLine() {
         return _numberLine;
     }
     
     
+    /** The time in milliseconds a player has to make a move in frenzy mode. */
+    public static final long FRENZY_LIMIT = 3000;
+    
     /* Game variables. */
-    private int _seed, _length, _max, _difficulty;
+    private int _seed, _length, _max, _difficulty, _threads;
     private double _time;
-    private boolean _frenzied, _passing, _timed, _singlePlayer, _isPlayer2
-        , _guiEnabled;
+    private boolean _frenzied, _passing, _timed, _lazy, _pondering, _singlePlayer, _isPlayer2
+        , _guiEnabled, _headless;
     private Random _random;
     
+    /** The number of numbers shown at each end of the number line, or 0
+     *  to show all of them, and the buffer the line is shown from. */
+    private int _window;
+    private final StringBuilder _display = new StringBuilder();
+    
     /** This game's input scanner. */
     private Scanner inp;
     
@@ -254,6 +583,16 @@ public class Game {
     
     /** The NumberLine with which the game is played. */
     private NumberLine _numberLine;
+    
+    /** The solution of _numberLine, if it has been found yet, and the
+     *  cache it is kept in. */
+    private Solution _solution;
+    private SolutionCache _cache;
+    
+    /** The record of this game's moves, or null, and the file records are
+     *  appended to, or null. */
+    private GameRecord _record;
+    private File _recordFile;
 
 
 }
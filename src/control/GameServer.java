@@ -0,0 +1,496 @@
+package core;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** Hosts games of Number Grab against a machine player for clients over
+ *  TCP. One thread serves every connection through a Selector, so
+ *  thousands of games can be played at once, and the machine player's
+ *  moves are found on a fixed pool of worker threads, so that a long
+ *  search never holds up other connections. Each connection plays one
+ *  headless Game at a time (see Game#move), and an idle connection costs
+ *  only its Game and a small input buffer.
+ *  <p>
+ *  The protocol is lines of ASCII text. A game starts when a client
+ *  connects, and whenever it sends NEW, with the server sending "LINE"
+ *  followed by the game's numbers. The client is player 1, and sends its
+ *  moves as 0 to grab from the left, 1 from the right or 2 to pass, if
+ *  passing is enabled. The server answers each move with "MOVE M", where M
+ *  is the machine player's move, when it is the client's turn again, or
+ *  with "END M P1 P2" when the game is over, where M is the machine
+ *  player's last move, or - if the client's move ended the game, and P1
+ *  and P2 are the players' totals. Anything else is answered with "ERROR"
+ *  and a reason. A client may send several lines at once: they are
+ *  handled in order, and no more is read from a connection while its
+ *  machine player is thinking or its answers are waiting to be sent. */
+public class GameServer {
+
+    /** Serves games as described by ARGS, as in {@link #usage}, until the
+     *  process is stopped. */
+    public static void main(String... args) {
+        String options = "--debug= --port= --threads= --seed= --length= --max= "
+            + "--difficulty= --passing";
+        CommandArgs cArgs = new CommandArgs(options, args);
+        if (!cArgs.ok()) {
+            usage();
+        }
+        int debug = 0, port = DEFAULT_PORT, length = 20, max = 10, difficulty = 3;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = System.nanoTime();
+        if (cArgs.containsKey("--debug")) {
+            debug = cArgs.getInt("--debug");
+        }
+        if (cArgs.containsKey("--port")) {
+            port = cArgs.getInt("--port");
+        }
+        if (cArgs.containsKey("--threads")) {
+            threads = cArgs.getInt("--threads");
+        }
+        if (cArgs.containsKey("--seed")) {
+            seed = cArgs.getLong("--seed");
+        }
+        if (cArgs.containsKey("--length")) {
+            length = cArgs.getInt("--length");
+        }
+        if (cArgs.containsKey("--max")) {
+            max = cArgs.getInt("--max");
+        }
+        if (cArgs.containsKey("--difficulty")) {
+            difficulty = cArgs.getInt("--difficulty");
+        }
+        if (debug < 0 || port < 0 || port > 65535 || threads < 1 || length < 1
+            || max < 1 || difficulty < 1 || difficulty > 5) {
+            usage();
+        }
+        Reporter.setMessageLevel(debug);
+        GameServer server;
+        try {
+            server = new GameServer(port, threads, seed, length, max, difficulty,
+                                    cArgs.containsKey("--passing"));
+        } catch (IOException e) {
+            System.err.printf("Could not listen on port %d: %s\n", port, e.getMessage());
+            System.exit(1);
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(server::report));
+        System.out.printf("Serving games of length %d, max %d, difficulty %d on port %d\n",
+                          length, max, difficulty, server.getPort());
+        try {
+            server.serve();
+        } catch (IOException e) {
+            System.err.printf("Server failed: %s\n", e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** A server listening on PORT, or on any free port if PORT is 0, for
+     *  games of LENGTH numbers of at most MAX against a machine player of
+     *  DIFFICULTY, whose moves are found on THREADS threads. Games allow
+     *  passing iff PASSING, and their seeds are drawn from a SplittableRandom
+     *  with seed SEED. */
+    public GameServer(int port, int threads, long seed, int length, int max,
+                      int difficulty, boolean passing) throws IOException {
+        _length = length;
+        _max = max;
+        _difficulty = difficulty;
+        _passing = passing;
+        _seeds = new SplittableRandom(seed);
+        _selector = Selector.open();
+        _server = ServerSocketChannel.open();
+        _server.bind(new InetSocketAddress(port), BACKLOG);
+        _server.configureBlocking(false);
+        _server.register(_selector, SelectionKey.OP_ACCEPT);
+        _pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "GameServer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** @return the port this server listens on. */
+    public int getPort() {
+        return _server.socket().getLocalPort();
+    }
+
+    /** Serves connections on this thread until stop is called. */
+    public void serve() throws IOException {
+        _start = System.nanoTime();
+        while (_running) {
+            _selector.select();
+            for (Session session = _answered.poll(); session != null;
+                 session = _answered.poll()) {
+                session.answered();
+            }
+            Iterator<SelectionKey> keys = _selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (!key.isValid()) {
+                    continue;
+                } else if (key.isAcceptable()) {
+                    accept();
+                    continue;
+                }
+                Session session = (Session) key.attachment();
+                try {
+                    if (key.isWritable()) {
+                        session.write();
+                    }
+                    if (key.isValid() && key.isReadable() && !session.waiting()) { //Writing may have set the machine player thinking.
+                        session.read();
+                    }
+                } catch (IOException e) {
+                    Reporter.debug(1, "GameServer: %s", e.getMessage());
+                    session.close();
+                }
+            }
+        }
+        _selector.close();
+        _server.close();
+        _pool.shutdownNow();
+    }
+
+    /** Makes serve return soon. May be called from any thread. */
+    public void stop() {
+        _running = false;
+        _selector.wakeup();
+    }
+
+    /** Prints the number of connections, games and moves served so far,
+     *  and the distribution of the times the machine player took to
+     *  answer. */
+    public void report() {
+        double seconds = (System.nanoTime() - _start) / 1e9;
+        System.out.printf("Connections: %d (%d open)  Games: %d  Moves: %d (%.0f/second)\n",
+                          _connections, _open, _games, _moves, _moves / seconds);
+        System.out.printf("Answers: %s\n", _latency);
+    }
+
+    /** Accepts every pending connection. A connection that fails, or
+     *  that can't be accepted, as when the process is out of file
+     *  descriptors, is dropped without disturbing the others. */
+    private void accept() {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = _server.accept();
+            } catch (IOException e) {
+                Reporter.debug(1, "GameServer: %s", e.getMessage());
+                return;
+            }
+            if (channel == null) {
+                return;
+            }
+            Session session = null;
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                session = new Session(channel);
+                session.start();
+            } catch (IOException e) {
+                Reporter.debug(1, "GameServer: %s", e.getMessage());
+                if (session != null) {
+                    session.close();
+                } else {
+                    close(channel);
+                }
+            }
+        }
+    }
+
+    /** Closes CHANNEL, which also cancels its keys. */
+    private static void close(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Reporter.debug(1, "GameServer: %s", e.getMessage());
+        }
+    }
+
+    /** The game played on one connection, which is only ever touched by
+     *  the thread running serve, except by the worker finding the machine
+     *  player's move while _thinking. */
+    private class Session {
+
+        /** A session on CHANNEL. */
+        Session(SocketChannel channel) throws IOException {
+            _channel = channel;
+            _key = channel.register(_selector, SelectionKey.OP_READ, this);
+            _connections += 1;
+            _open += 1;
+        }
+
+        /** Starts a new game and sends its line. */
+        void start() throws IOException {
+            _game = new Game(_seeds.nextInt(), _length, _max, _difficulty, _passing);
+            _games += 1;
+            NumberLine numberLine = _game.getNumberLine();
+            StringBuilder text = new StringBuilder(4 * numberLine.size() + 8).append("LINE");
+            for (int i = 0; i < numberLine.size(); i++) {
+                text.append(' ').append(numberLine.get(i));
+            }
+            send(text);
+        }
+
+        /** Reads what the client has sent and handles it. */
+        void read() throws IOException {
+            if (_channel.read(_in) < 0) {
+                close();
+            } else {
+                handle();
+            }
+        }
+
+        /** Handles the complete lines read so far, in order, until one of
+         *  them has to wait for the machine player or for the client to
+         *  read its answers. */
+        void handle() throws IOException {
+            _in.flip();
+            int start = _in.position();
+            for (int i = start; i < _in.limit() && !waiting(); i++) {
+                if (_in.get(i) == '\n') {
+                    command(start, i);
+                    start = i + 1;
+                }
+            }
+            _in.position(start);
+            _in.compact();
+            if (!_in.hasRemaining() && !hasLine()) {
+                throw new IOException("line too long");
+            }
+            interest();
+        }
+
+        /** @return true iff _in holds a complete line, waiting to be
+         *  handled. */
+        boolean hasLine() {
+            for (int i = 0; i < _in.position(); i++) {
+                if (_in.get(i) == '\n') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Carries out the command in _in from index START up to END. */
+        void command(int start, int end) throws IOException {
+            if (end > start && _in.get(end - 1) == '\r') {
+                end -= 1;
+            }
+            int move = end - start == 1 ? _in.get(start) - '0' : -1;
+            if (move >= 0 && move <= 9) {
+                if (!_game.move(move)) {
+                    send("ERROR illegal move");
+                } else if (_game.isOver()) {
+                    send(end("-"));
+                } else {
+                    think();
+                }
+                return;
+            }
+            byte[] bytes = new byte[end - start];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = _in.get(start + i);
+            }
+            String text = new String(bytes, StandardCharsets.US_ASCII).trim();
+            if (text.equals("NEW")) {
+                start();
+            } else {
+                send("ERROR unknown command " + text);
+            }
+        }
+
+        /** Finds the machine player's move on a worker thread, after which
+         *  answered is called on the serving thread. */
+        void think() {
+            _thinking = true;
+            long start = System.nanoTime();
+            _pool.execute(() -> {
+                try {
+                    String move = Integer.toString(_game.reply());
+                    _answer = _game.isOver() ? end(move) : "MOVE " + move;
+                } catch (RuntimeException e) {
+                    Reporter.debug(1, "GameServer: %s", e);
+                    _answer = "ERROR " + e;
+                }
+                _latency.record(System.nanoTime() - start);
+                _answered.add(this);
+                _selector.wakeup();
+            });
+        }
+
+        /** Sends the machine player's answer and carries on with the lines
+         *  that were waiting for it. */
+        void answered() {
+            _thinking = false;
+            if (!_key.isValid()) {
+                return;
+            }
+            _moves += 1;
+            try {
+                send(_answer);
+                handle();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        /** @return the END line of the finished game, whose last machine
+         *  move was MOVE. */
+        String end(String move) {
+            NumberLine numberLine = _game.getNumberLine();
+            return "END " + move + " " + numberLine.getP1Total() + " "
+                + numberLine.getP2Total();
+        }
+
+        /** Sends the line TEXT, keeping what can't be written at once to be
+         *  written when the client is ready for it. */
+        void send(CharSequence text) throws IOException {
+            int length = text.length();
+            ByteBuffer bytes;
+            if (_out == null) {
+                bytes = ByteBuffer.allocate(length + 1);
+            } else {
+                bytes = ByteBuffer.allocate(_out.remaining() + length + 1);
+                bytes.put(_out);
+            }
+            for (int i = 0; i < length; i++) {
+                bytes.put((byte) text.charAt(i));
+            }
+            bytes.put((byte) '\n').flip();
+            _out = bytes;
+            flush();
+        }
+
+        /** Writes the waiting output once the client is ready for it, and
+         *  then handles the lines that were waiting for it to be read. */
+        void write() throws IOException {
+            flush();
+            if (_out == null && !_thinking) {
+                handle();
+            }
+        }
+
+        /** Writes as much of the waiting output as the client will take. */
+        void flush() throws IOException {
+            _channel.write(_out);
+            if (!_out.hasRemaining()) {
+                _out = null;
+            }
+            interest();
+        }
+
+        /** @return true iff no more lines can be handled for now. */
+        boolean waiting() {
+            return _thinking || _out != null;
+        }
+
+        /** Reads only when lines can be handled, and writes only when there
+         *  is output waiting. */
+        void interest() {
+            if (_key.isValid()) {
+                _key.interestOps((waiting() ? 0 : SelectionKey.OP_READ)
+                                 | (_out != null ? SelectionKey.OP_WRITE : 0));
+            }
+        }
+
+        /** Closes this session's connection. */
+        void close() {
+            if (_key.isValid()) {
+                _open -= 1;
+            }
+            GameServer.close(_channel);
+        }
+
+        /** The client's connection and its key. */
+        private final SocketChannel _channel;
+        private final SelectionKey _key;
+
+        /** The lines read but not yet handled. */
+        private final ByteBuffer _in = ByteBuffer.allocate(INPUT_BYTES);
+
+        /** The output not yet written, or null. */
+        private ByteBuffer _out;
+
+        /** The game being played. */
+        private Game _game;
+
+        /** True iff the machine player is looking for a move, and its
+         *  answer once it has one. */
+        private boolean _thinking;
+        private String _answer;
+    }
+
+    /** A description of the command line format. */
+    public static void usage() {
+        System.out.print("\n--GameServer usage instructions--\n" +
+                "[ --debug=N ] [ --port=P ] [ --threads=T ] [ --seed=S ] [ --length=L ]\n" +
+                "[ --max=M ] [ --difficulty=D ] [ --passing ]\n" +
+                "-N >= 0 and sets the debug output level. 0 by default.\n" +
+                "-P is the TCP port to listen on, or 0 for any free port. " + DEFAULT_PORT + " by default.\n" +
+                "-T is the number of threads the machine player's moves are found on.\n" +
+                " The number of processors by default.\n" +
+                "-S is the seed the games' seeds are drawn from. The time by default.\n" +
+                "-L is the length of the number lines. 20 by default.\n" +
+                "-M is the maximum value of the numbers in the lines. 10 by default.\n" +
+                "-D is the machine player's difficulty, from 1 (easy) to 5 (safe),\n" +
+                " as for core.Main. 3 by default.\n" +
+                "--passing lets the players pass the turn.\n" +
+                "Clients play as player 1. See core.LoadGenerator for a client.\n");
+        System.exit(1);
+    }
+
+    /** The port served on by default. */
+    public static final int DEFAULT_PORT = 4040;
+
+    /** The number of connections that may wait to be accepted. */
+    private static final int BACKLOG = 4096;
+
+    /** The size of each connection's input buffer, and so the length of
+     *  the longest line a client may send. */
+    private static final int INPUT_BYTES = 64;
+
+    /** The game parameters. */
+    private final int _length, _max, _difficulty;
+    private final boolean _passing;
+
+    /** The source of the games' seeds. */
+    private final SplittableRandom _seeds;
+
+    /** The selector serving every connection, and the channel connections
+     *  are accepted on. */
+    private final Selector _selector;
+    private final ServerSocketChannel _server;
+
+    /** The threads the machine player's moves are found on, and the
+     *  sessions whose moves have been found, to be answered. */
+    private final ExecutorService _pool;
+    private final ConcurrentLinkedQueue<Session> _answered = new ConcurrentLinkedQueue<>();
+
+    /** False once stop has been called. */
+    private volatile boolean _running = true;
+
+    /** The time serving started, as given by System.nanoTime(). */
+    private long _start = System.nanoTime();
+
+    /** The numbers of connections made and still open, of games started
+     *  and of machine moves made. */
+    private volatile long _connections, _open, _games, _moves;
+
+    /** The times the machine player took to answer, from a move being
+     *  handled to the answer being found. */
+    private final LatencyHistogram _latency = new LatencyHistogram();
+
+}
@@ -0,0 +1,287 @@
+package core;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/** Measures the throughput and latency of a GameServer by playing many
+ *  games on it at once. Every client is a connection that plays a number
+ *  of games in a row as player 1, grabbing the larger end of the line
+ *  every move, and the time from each of its moves being sent to the
+ *  server's answer arriving is recorded. All the clients are served by
+ *  one thread through a Selector, so thousands of them can be run from
+ *  one process. */
+public class LoadGenerator {
+
+    /** Runs the load described by ARGS, as in {@link #usage}. */
+    public static void main(String... args) {
+        String options = "--debug= --host= --port= --clients= --games=";
+        CommandArgs cArgs = new CommandArgs(options, args);
+        if (!cArgs.ok()) {
+            usage();
+        }
+        int debug = 0, port = GameServer.DEFAULT_PORT, clients = 1000, games = 10;
+        String host = "localhost";
+        if (cArgs.containsKey("--debug")) {
+            debug = cArgs.getInt("--debug");
+        }
+        if (cArgs.containsKey("--host")) {
+            host = cArgs.getLast("--host");
+        }
+        if (cArgs.containsKey("--port")) {
+            port = cArgs.getInt("--port");
+        }
+        if (cArgs.containsKey("--clients")) {
+            clients = cArgs.getInt("--clients");
+        }
+        if (cArgs.containsKey("--games")) {
+            games = cArgs.getInt("--games");
+        }
+        if (debug < 0 || port < 1 || port > 65535 || clients < 1 || games < 1) {
+            usage();
+        }
+        Reporter.setMessageLevel(debug);
+        LoadGenerator load = new LoadGenerator(new InetSocketAddress(host, port),
+                                               clients, games);
+        try {
+            load.run();
+        } catch (IOException e) {
+            System.err.printf("%s:%d: %s\n", host, port, e.getMessage());
+            System.exit(1);
+        }
+        load.report();
+    }
+
+    /** A load of CLIENTS clients that each play GAMES games on the server
+     *  at ADDRESS. */
+    public LoadGenerator(InetSocketAddress address, int clients, int games) {
+        _address = address;
+        _clients = clients;
+        _games = games;
+    }
+
+    /** Connects every client and plays until each has played its games or
+     *  been dropped. */
+    public void run() throws IOException {
+        long start = System.nanoTime();
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < _clients; i++) {
+                SocketChannel channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                Client client = new Client(channel);
+                if (channel.connect(_address)) {
+                    channel.register(selector, SelectionKey.OP_READ, client);
+                } else {
+                    channel.register(selector, SelectionKey.OP_CONNECT, client);
+                }
+            }
+            int running = _clients;
+            while (running > 0) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Client client = (Client) key.attachment();
+                    try {
+                        if (key.isConnectable()) {
+                            client._channel.finishConnect();
+                            key.interestOps(SelectionKey.OP_READ);
+                        } else if (key.isWritable()) {
+                            client.flush(key);
+                        } else if (key.isReadable() && !client.read(key)) {
+                            key.channel().close();
+                            running -= 1;
+                        }
+                    } catch (IOException e) {
+                        Reporter.debug(1, "LoadGenerator: %s", e.getMessage());
+                        _dropped += 1;
+                        key.channel().close();
+                        running -= 1;
+                    }
+                }
+            }
+        }
+        _nanos = System.nanoTime() - start;
+    }
+
+    /** Prints the numbers of games and moves played, how fast they were
+     *  played, and the distribution of the server's answer times. */
+    public void report() {
+        double seconds = _nanos / 1e9;
+        System.out.printf("Clients: %d (%d dropped)  Games: %d  Moves: %d  Errors: %d\n",
+                          _clients, _dropped, _played, _moves, _errors);
+        System.out.printf("Speed: %.0f games/second  %.0f moves/second\n",
+                          _played / seconds, _moves / seconds);
+        System.out.printf("Clients won %.2f%% of their games\n",
+                          _played == 0 ? 0 : 100.0 * _won / _played);
+        System.out.printf("Answers: %s\n", _latency);
+    }
+
+    /** One connection to the server, playing its games one at a time. */
+    private class Client {
+
+        /** A client on CHANNEL. */
+        Client(SocketChannel channel) {
+            _channel = channel;
+        }
+
+        /** Reads and acts on the server's lines. Returns false once this
+         *  client is done. */
+        boolean read(SelectionKey key) throws IOException {
+            if (_channel.read(_in) < 0) {
+                throw new IOException("connection closed by the server");
+            }
+            _in.flip();
+            int start = _in.position();
+            for (int i = start; i < _in.limit(); i++) {
+                if (_in.get(i) == '\n') {
+                    if (!answer(key, new String(_in.array(), start, i - start,
+                                                StandardCharsets.US_ASCII))) {
+                        return false;
+                    }
+                    start = i + 1;
+                }
+            }
+            _in.position(start);
+            _in.compact();
+            if (!_in.hasRemaining()) { //A long LINE: make room for the rest of it.
+                _in.flip();
+                _in = ByteBuffer.allocate(2 * _in.capacity()).put(_in);
+            }
+            return true;
+        }
+
+        /** Acts on the server's line TEXT, sending the next move or game on
+         *  KEY. Returns false once this client is done. */
+        boolean answer(SelectionKey key, String text) throws IOException {
+            String[] words = text.trim().split(" ");
+            if (_sent != 0) {
+                _latency.record(System.nanoTime() - _sent);
+                _sent = 0;
+            }
+            switch (words[0]) {
+            case "LINE":
+                _numbers = new int[words.length - 1];
+                for (int i = 0; i < _numbers.length; i++) {
+                    _numbers[i] = Integer.parseInt(words[i + 1]);
+                }
+                _left = 0;
+                _right = _numbers.length - 1;
+                break;
+            case "MOVE":
+                _moves += 1;
+                grab(Integer.parseInt(words[1]));
+                break;
+            case "END":
+                if (!words[1].equals("-")) {
+                    _moves += 1;
+                }
+                _played += 1;
+                if (Integer.parseInt(words[2]) > Integer.parseInt(words[3])) {
+                    _won += 1;
+                }
+                _gamesLeft -= 1;
+                if (_gamesLeft == 0) {
+                    return false;
+                }
+                send(key, "NEW");
+                return true;
+            default:
+                Reporter.debug(1, "LoadGenerator: %s", text);
+                _errors += 1;
+                return false;
+            }
+            int move = _numbers[_left] >= _numbers[_right] ? 0 : 1;
+            grab(move);
+            _moves += 1;
+            send(key, move == 0 ? "0" : "1");
+            return true;
+        }
+
+        /** Takes MOVE, as sent to or from the server, off this client's
+         *  copy of the line. */
+        void grab(int move) {
+            if (move == 0) {
+                _left += 1;
+            } else if (move == 1) {
+                _right -= 1;
+            }
+        }
+
+        /** Sends the line TEXT on KEY. */
+        void send(SelectionKey key, String text) throws IOException {
+            byte[] bytes = Arrays.copyOf(text.getBytes(StandardCharsets.US_ASCII),
+                                         text.length() + 1);
+            bytes[text.length()] = '\n';
+            _out = ByteBuffer.wrap(bytes);
+            _sent = System.nanoTime();
+            flush(key);
+        }
+
+        /** Writes as much of the waiting output on KEY as the server will
+         *  take, writing the rest when it is ready for it. */
+        void flush(SelectionKey key) throws IOException {
+            _channel.write(_out);
+            key.interestOps(_out.hasRemaining() ? SelectionKey.OP_WRITE
+                            : SelectionKey.OP_READ);
+        }
+
+        /** The connection to the server. */
+        private final SocketChannel _channel;
+
+        /** The lines read but not yet acted on, and the line being sent. */
+        private ByteBuffer _in = ByteBuffer.allocate(256);
+        private ByteBuffer _out;
+
+        /** The numbers of the game being played, and the indices of the
+         *  numbers at its ends. */
+        private int[] _numbers;
+        private int _left, _right;
+
+        /** The number of games this client has left to play. */
+        private int _gamesLeft = _games;
+
+        /** The time the last line was sent, as given by System.nanoTime(),
+         *  or 0 if it has been answered. */
+        private long _sent;
+    }
+
+    /** A description of the command line format. */
+    public static void usage() {
+        System.out.print("\n--LoadGenerator usage instructions--\n" +
+                "[ --debug=N ] [ --host=H ] [ --port=P ] [ --clients=C ] [ --games=G ]\n" +
+                "-N >= 0 and sets the debug output level. 0 by default.\n" +
+                "-H and P are the host and port of the core.GameServer to load.\n" +
+                " localhost and " + GameServer.DEFAULT_PORT + " by default.\n" +
+                "-C is the number of clients, each with its own connection. 1000 by default.\n" +
+                "-G is the number of games each client plays. 10 by default.\n");
+        System.exit(1);
+    }
+
+    /** The address of the server. */
+    private final InetSocketAddress _address;
+
+    /** The numbers of clients and of games each plays. */
+    private final int _clients, _games;
+
+    /** The numbers of games played and won by the clients, of moves made
+     *  by both players, of error lines received and of clients dropped. */
+    private long _played, _won, _moves, _errors, _dropped;
+
+    /** The time the clients took, in nanoseconds. */
+    private long _nanos;
+
+    /** The times from the clients' lines being sent to their answers
+     *  arriving. */
+    private final LatencyHistogram _latency = new LatencyHistogram();
+
+}
@@ -1,22 +1,26 @@
 package core;
 
+import java.io.File;
 
 public class Main {
 
     /** The main engine for Number Grab. ARGS is as described in 
      *  {@link Main.usage}. */
     public static void main(String... args) {
-        String options = "--rules --debug= --seed= --length= --max= --frenzy " +
-        		"--time= --passing --ai --player2 --difficulty= --gui";
+        String options = "--rules --debug= --async --seed= --length= --max= --frenzy " +
+        		"--time= --passing --lazy --ponder --ai --player2 --difficulty= --threads= --cache= --window= --record= --gui";
         CommandArgs cArgs = new CommandArgs(options, args);
         if (!cArgs.ok()) {
             usage(); //Print usage instructions if input was not correct.
         }
         
         /* Initialize default variables. */
-        int debug = 0, seed = -1, length = 20, max = 10, difficulty = 2;
+        int debug = 0, seed = -1, length = 20, max = 10, difficulty = 2
+                , threads = 1, window = 0;
         double time = Double.POSITIVE_INFINITY;
-        boolean frenzied = false, passing = false, timed = false
+        SolutionCache cache = null;
+        boolean frenzied = false, passing = false, timed = false, lazy = false
+                , pondering = false
                 , singlePlayer = false, isPlayer2 = false, guiEnabled = false;
         
         /* Process command line arguments. */
@@ -62,6 +66,12 @@ public class Main {
         if (cArgs.containsKey("--passing")) {
             passing = true;
         }
+        if (cArgs.containsKey("--lazy")) {
+            lazy = true;
+        }
+        if (cArgs.containsKey("--ponder")) {
+            pondering = true;
+        }
         if (cArgs.containsKey("--ai")) {
             singlePlayer = true;
         }
@@ -73,16 +83,45 @@ public class Main {
         }
         if (cArgs.containsKey("--difficulty")) {
             difficulty = cArgs.getInt("--difficulty");
-            if (difficulty < 1 || difficulty > 3) {
+            if (difficulty < 1 || difficulty > 5) {
+                usage();
+            }
+        }
+        if (cArgs.containsKey("--threads")) {
+            threads = cArgs.getInt("--threads");
+            if (threads < 1) {
+                usage();
+            }
+        }
+        if (cArgs.containsKey("--cache")) {
+            cache = new SolutionCache(new File(cArgs.getLast("--cache")),
+                    SolutionCache.DEFAULT_MAX_BYTES);
+        }
+        if (cArgs.containsKey("--window")) {
+            window = cArgs.getInt("--window");
+            if (window < 0) {
                 usage();
             }
         }
         if (cArgs.containsKey("--gui")) {
             guiEnabled = true;
         }
+        if (lazy && singlePlayer && difficulty == 4) { //The perfect AI reads the whole line, which a lazy line exists to avoid.
+            System.err.println("The perfect AI (difficulty 4) can't play lazy lines;"
+                               + " use difficulty 3 or 5 instead.");
+            usage();
+        }
         Reporter.setMessageLevel(debug);
-        Game game = new Game(seed, length, max, time, difficulty
-                , frenzied, timed, passing, singlePlayer, isPlayer2, guiEnabled);
+        if (cArgs.containsKey("--async")) {
+            Reporter.setAsync(true);
+        }
+        Game game = new Game(seed, length, max, time, difficulty, threads
+                , frenzied, timed, passing, lazy, pondering, singlePlayer, isPlayer2, guiEnabled
+                , cache);
+        game.setWindow(window);
+        if (cArgs.containsKey("--record")) {
+            game.setRecordFile(new File(cArgs.getLast("--record")));
+        }
         game.play();
 
     }
@@ -99,16 +138,17 @@ public class Main {
         		"just picking the biggest number isn't the best strategy!\n" +
         		"To make a move, simply enter 0 to grab a number from the left\n" +
         		"side of the line, 1 to grab one from the right, or 2 to pass\n" +
-        		"the turn if passing is enabled. You can also enter c to view \n" +
-        		"a list of commands.\n\n");
+        		"the turn if passing is enabled. If both players pass in a row,\n" +
+        		"the game ends. You can also enter c to view a list of commands.\n\n");
     }
     
     /** A description of the command line format. */
     public static void usage() {
         System.out.print("\n--Command line usage instructions--\n" +
         		"Please use the following parameter format (IN THIS ORDER): \n" +
-        		"[ --rules] [ --debug=N ] [ --seed=S ] [ --length=L ] [ --max=M ] \n" +
-        		"[ --frenzy ] [ --time=T ] [ --passing ] [ --ai ] [ --difficulty=D ] [ --gui ]\n" +
+        		"[ --rules] [ --debug=N ] [ --async ] [ --seed=S ] [ --length=L ] [ --max=M ] \n" +
+        		"[ --frenzy ] [ --time=T ] [ --passing ] [ --lazy ] [ --ponder ] [ --ai ] [ --difficulty=D ] [ --threads=P ]\n" +
+        		"[ --cache=DIR ] [ --window=K ] [ --record=FILE ] [ --gui ]\n" +
         		"Where square brackets indicate optional parameters. " +
         		"An example is: \n" +
                 "\"java core.Main --rules --ai --difficulty=1\" \n" +
@@ -116,6 +156,8 @@ public class Main {
         		"The parameter values are:\n" +
         		"-rules prints the game rules. \n" +
         		"-N >= 0 and sets the debug output level. 0 by default.\n" +
+        		"-async prints debug output on a background thread, so that it slows " +
+        		"the AI less. Off by default.\n" +
         		"-S is the seed of the game's random number generator.\n" +
         		"-L is the length of game's number line. 20 by default.\n" +
         		"-M is the maximum value of the numbers in the line. 10 by default.\n" +
@@ -125,10 +167,22 @@ public class Main {
         		" No time limit by default.\n" +
         		"THE TIME OPTION CANNOT BE USED WITH FRENZY MODE.\n" +
         		"-passing enables turn passing. \n" +
+        		"-lazy generates each number only when it is first needed, so that " +
+        		"very long lines start instantly. Off by default.\n" +
+        		"THE LAZY OPTION CANNOT BE USED WITH THE PERFECT AI.\n" +
+        		"-ponder lets the hard AI think while its opponent does. Off by default.\n" +
         		"-ai enables an AI opponent. Off by default.\n" +
         		"-player2 sets the human player as player2. Note that player1 moves first. AI MUST BE ENABLED.\n" +
-        		"-D sets the difficulty of the AI opponent. 1 is easy, 2 is medium " +
-        		"and 3 is hard. 2 by default.\n" +
+        		"-D sets the difficulty of the AI opponent. 1 is easy, 2 is medium, " +
+        		"3 is hard, 4 is perfect and 5 is safe, which plays the parity strategy " +
+        		"and can't lose when moving first on an even line. 2 by default.\n" +
+        		"-P is the number of threads the hard AI searches with. 1 by default.\n" +
+        		"-DIR is a directory where solved lines are kept for the perfect AI. " +
+        		"Not used by default.\n" +
+        		"-K shows only the K numbers at each end of the line between moves. " +
+        		"The whole line is shown by default.\n" +
+        		"-FILE is where a compact record of each game is appended, to be checked " +
+        		"with core.Replayer. Games are not recorded by default.\n" +
         		"-gui enables the GUI for this game. Not currently implemented.\n");
         System.exit(1);
     }
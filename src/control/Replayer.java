@@ -0,0 +1,163 @@
+package core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/** Replays archives of GameRecords, checking that every recorded game
+ *  could have been played: that each move was allowed in its game's modes,
+ *  that no move was made on an empty line, that untimed games ran until
+ *  the line was empty or the leader was out of reach, and that the
+ *  recorded totals are the totals the moves give. Lines are regenerated from their parameters into a buffer
+ *  that is reused from game to game, and the moves are applied to two
+ *  indices and two totals, so replaying a game allocates next to nothing. */
+public class Replayer {
+
+    /** Replays the archives named in ARGS, as in {@link #usage}. */
+    public static void main(String... args) {
+        String options = "--={1,}";
+        CommandArgs cArgs = new CommandArgs(options, args);
+        if (!cArgs.ok()) {
+            usage();
+        }
+        Replayer replayer = new Replayer();
+        long start = System.nanoTime();
+        for (String name : cArgs.get("--")) {
+            try {
+                replayer.replay(new File(name));
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.printf("%s: %s\n", name, e.getMessage());
+                System.exit(1);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Games: %d  Invalid: %d\n", replayer._games, replayer._invalid);
+        System.out.printf("Speed: %.0f games/second\n", replayer._games / seconds);
+        if (replayer._invalid > 0) {
+            System.exit(1);
+        }
+    }
+
+    /** Replays every record in FILE, counting the games and the invalid
+     *  games among them. Throws IllegalArgumentException if FILE holds
+     *  anything but records. */
+    public void replay(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                                                    StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+            GameRecord record = new GameRecord();
+            while (true) {
+                int read = channel.read(buffer);
+                buffer.flip();
+                long size;
+                while ((size = GameRecord.recordSize(buffer)) >= 0
+                       && size <= buffer.remaining()) {
+                    record.read(buffer);
+                    _games += 1;
+                    if (!verify(record)) {
+                        _invalid += 1;
+                        Reporter.debug(1, "Replayer: game %d of %s is invalid",
+                                       _games, file);
+                    }
+                }
+                if (read < 0) {
+                    if (buffer.hasRemaining()) {
+                        throw new IllegalArgumentException("truncated game record");
+                    }
+                    break;
+                } else if (size > buffer.capacity()) { //Make room for a record larger than the buffer.
+                    if (size > Integer.MAX_VALUE) {
+                        throw new IllegalArgumentException("record too large");
+                    }
+                    buffer = ByteBuffer.allocateDirect((int) size).put(buffer);
+                } else {
+                    buffer.compact();
+                }
+            }
+        }
+    }
+
+    /** Returns true iff RECORD describes a game that could have been
+     *  played, as described above. */
+    public boolean verify(GameRecord record) {
+        int length = record.length(), max = record.max();
+        if (length < 0 || max < 1) {
+            return false;
+        }
+        boolean lazy = record.hasMode(GameRecord.LAZY);
+        LazyNumberStore store = null;
+        if (lazy) {
+            store = new LazyNumberStore(record.seed(), length, max);
+        } else { //Make the numbers just as NumberLine does.
+            if (_numbers.length < length) {
+                _numbers = new int[Math.max(length, 2 * _numbers.length)];
+            }
+            _random.setSeed(record.seed());
+            for (int i = 0; i < length; i++) {
+                _numbers[i] = _random.nextInt(max) + 1;
+            }
+        }
+        boolean passing = record.hasMode(GameRecord.PASSING);
+        boolean frenzied = record.hasMode(GameRecord.FRENZIED);
+        int left = 0, right = length, p1Total = 0, p2Total = 0, passes = 0;
+        for (int k = 0, moves = record.size(); k < moves; k++) {
+            if (left == right || (passing && passes >= 2)) {
+                return false; //The game was over.
+            }
+            int move = record.move(k), num;
+            if (move == GameRecord.LEFT) {
+                num = lazy ? store.get(left) : _numbers[left];
+                left += 1;
+            } else if (move == GameRecord.RIGHT) {
+                right -= 1;
+                num = lazy ? store.get(right) : _numbers[right];
+            } else if (move == GameRecord.PASS ? passing : frenzied) {
+                num = 0;
+            } else {
+                return false;
+            }
+            passes = move >= GameRecord.PASS ? passes + 1 : 0;
+            if ((k & 1) == 0) {
+                p1Total += num;
+            } else {
+                p2Total += num;
+            }
+        }
+        if (left != right && !record.hasMode(GameRecord.TIMED)
+            && !(passing && passes >= 2)) { //Only running out of time, two passes in a row or an unassailable lead ends a game early.
+            int remaining = 0;
+            for (int i = left; i < right; i++) {
+                remaining += lazy ? store.get(i) : _numbers[i];
+            }
+            if (Math.abs(p1Total - p2Total) <= remaining) {
+                return false;
+            }
+        }
+        return p1Total == record.getP1Total() && p2Total == record.getP2Total();
+    }
+
+    /** A description of the command line format. */
+    public static void usage() {
+        System.out.print("\n--Replayer usage instructions--\n" +
+                "FILE ...\n" +
+                "Each FILE is an archive of game records, as written by " +
+                "core.Main or core.Simulator with --record=FILE.\n");
+        System.exit(1);
+    }
+
+    /** The size of the buffer records are read into. */
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    /** The generator of non-lazy lines. */
+    private final Random _random = new Random();
+
+    /** The numbers of the non-lazy line being replayed. */
+    private int[] _numbers = new int[0];
+
+    /** The number of games replayed, and of invalid games among them. */
+    private long _games, _invalid;
+
+}
@@ -0,0 +1,225 @@
+package core;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.util.SplittableRandom;
+
+/** Plays many headless games of Number Grab between two machine players
+ *  in one process, and reports how they did. Every game gets its own
+ *  stream split off one SplittableRandom, so a run is reproduced exactly
+ *  by giving the same seed. */
+public class Simulator {
+
+    /** Runs the simulation described by ARGS, as in {@link #usage}. */
+    public static void main(String... args) {
+        String options = "--debug= --seed= --games= --length= --max= --p1= --p2= --latency= --record=";
+        CommandArgs cArgs = new CommandArgs(options, args);
+        if (!cArgs.ok()) {
+            usage();
+        }
+        int debug = 0, games = 10000, length = 20, max = 10, p1 = 3, p2 = 2;
+        long seed = 0;
+        if (cArgs.containsKey("--debug")) {
+            debug = cArgs.getInt("--debug");
+        }
+        if (cArgs.containsKey("--seed")) {
+            seed = cArgs.getLong("--seed");
+        }
+        if (cArgs.containsKey("--games")) {
+            games = cArgs.getInt("--games");
+        }
+        if (cArgs.containsKey("--length")) {
+            length = cArgs.getInt("--length");
+        }
+        if (cArgs.containsKey("--max")) {
+            max = cArgs.getInt("--max");
+        }
+        if (cArgs.containsKey("--p1")) {
+            p1 = cArgs.getInt("--p1");
+        }
+        if (cArgs.containsKey("--p2")) {
+            p2 = cArgs.getInt("--p2");
+        }
+        if (debug < 0 || games < 1 || length < 1 || max < 1
+            || p1 < 1 || p1 > 5 || p2 < 1 || p2 > 5) {
+            usage();
+        }
+        Reporter.setMessageLevel(debug);
+        Simulator simulator = new Simulator(seed, length, max, p1, p2);
+        if (cArgs.containsKey("--latency")) {
+            simulator.recordLatencies();
+        }
+        if (cArgs.containsKey("--record")) {
+            String file = cArgs.getLast("--record");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                     new FileOutputStream(file, true)))) {
+                simulator.recordGames(out);
+                simulator.run(games);
+            } catch (IOException | UncheckedIOException e) {
+                System.err.printf("Could not record games in %s: %s\n", file, e.getMessage());
+                System.exit(1);
+            }
+        } else {
+            simulator.run(games);
+        }
+        simulator.report();
+        if (cArgs.containsKey("--latency")) {
+            String file = cArgs.getLast("--latency");
+            try (PrintStream out = new PrintStream(file)) {
+                simulator.exportLatencies(out);
+            } catch (FileNotFoundException e) {
+                System.err.printf("Could not write %s: %s\n", file, e.getMessage());
+                System.exit(1);
+            }
+        }
+    }
+
+    /** A simulator of games on lines of LENGTH numbers of at most MAX
+     *  between players of difficulties P1 and P2, whose game streams are
+     *  split off a SplittableRandom with seed SEED. */
+    public Simulator(long seed, int length, int max, int p1, int p2) {
+        _streams = new SplittableRandom(seed);
+        _length = length;
+        _max = max;
+        _p1 = p1;
+        _p2 = p2;
+    }
+
+    /** Records the time every move of the games played from now on takes,
+     *  which slows the fastest players noticeably. */
+    public void recordLatencies() {
+        _p1Latency = new LatencyHistogram();
+        _p1Engine = new LatencyHistogram();
+        _p2Latency = new LatencyHistogram();
+        _p2Engine = new LatencyHistogram();
+    }
+
+    /** Writes a GameRecord of each game played from now on to OUT. */
+    public void recordGames(DataOutputStream out) {
+        _records = out;
+    }
+
+    /** Plays GAMES more games. Throws UncheckedIOException if a game
+     *  can't be recorded. */
+    public void run(int games) {
+        long start = System.nanoTime();
+        for (int i = 0; i < games; i++) {
+            SplittableRandom stream = _streams.split();
+            int seed = stream.nextInt();
+            Game game = new Game(seed, _length, _max, _p1, _p2);
+            game.getPlayer1().setEngineLatency(_p1Engine);
+            game.getPlayer2().setEngineLatency(_p2Engine);
+            if (_records != null) {
+                game.setRecord(new GameRecord(seed, _length, _max, 0));
+            }
+            game.simulate(_p1Latency, _p2Latency);
+            if (_records != null) {
+                try {
+                    game.getRecord().write(_records);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            record(game.getNumberLine().getP1Total() - game.getNumberLine().getP2Total());
+        }
+        _nanos += System.nanoTime() - start;
+    }
+
+    /** Adds a game that player 1 won by MARGIN to the results. */
+    private void record(int margin) {
+        _games += 1;
+        if (margin > 0) {
+            _p1Wins += 1;
+        } else if (margin < 0) {
+            _p2Wins += 1;
+        }
+        _marginSum += margin;
+        _marginSquares += (double) margin * margin;
+    }
+
+    /** Prints the results of the games played so far. */
+    public void report() {
+        double mean = (double) _marginSum / _games;
+        double deviation = Math.sqrt(Math.max(0, _marginSquares / _games - mean * mean));
+        System.out.printf("Games: %d (P1 difficulty %d, P2 difficulty %d, "
+                          + "length %d, max %d)\n", _games, _p1, _p2, _length, _max);
+        System.out.printf("P1 wins: %.2f%%  P2 wins: %.2f%%  Ties: %.2f%%\n",
+                          100.0 * _p1Wins / _games, 100.0 * _p2Wins / _games,
+                          100.0 * (_games - _p1Wins - _p2Wins) / _games);
+        System.out.printf("P1 margin: mean %.3f, standard deviation %.3f\n",
+                          mean, deviation);
+        System.out.printf("Speed: %.0f games/second\n", _games / (_nanos / 1e9));
+        if (_p1Latency != null) {
+            System.out.printf("P1 moves: %s\nP1 engine: %s\n", _p1Latency, _p1Engine);
+            System.out.printf("P2 moves: %s\nP2 engine: %s\n", _p2Latency, _p2Engine);
+        }
+    }
+
+    /** Prints the distributions of the move times recorded since
+     *  recordLatencies was called on OUT as CSV, one line per player and per engine, in
+     *  microseconds. */
+    public void exportLatencies(PrintStream out) {
+        out.println("series,difficulty,count,mean_us,p50_us,p90_us,p99_us,p999_us,max_us");
+        exportLatency(out, "p1_moves", _p1, _p1Latency);
+        exportLatency(out, "p1_engine", _p1, _p1Engine);
+        exportLatency(out, "p2_moves", _p2, _p2Latency);
+        exportLatency(out, "p2_engine", _p2, _p2Engine);
+    }
+
+    /** Prints the CSV line of the series NAME of difficulty DIFFICULTY
+     *  with distribution LATENCY on OUT. */
+    private static void exportLatency(PrintStream out, String name, int difficulty,
+                                      LatencyHistogram latency) {
+        out.printf("%s,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f\n", name, difficulty,
+                   latency.count(), latency.mean() / 1e3,
+                   latency.percentile(0.5) / 1e3, latency.percentile(0.9) / 1e3,
+                   latency.percentile(0.99) / 1e3, latency.percentile(0.999) / 1e3,
+                   latency.max() / 1e3);
+    }
+
+    /** A description of the command line format. */
+    public static void usage() {
+        System.out.print("\n--Simulator usage instructions--\n" +
+                "[ --debug=N ] [ --seed=S ] [ --games=G ] [ --length=L ] [ --max=M ]\n" +
+                "[ --p1=D ] [ --p2=D ] [ --latency=FILE ] [ --record=FILE ]\n" +
+                "-N >= 0 and sets the debug output level. 0 by default.\n" +
+                "-S is the seed the games' random number streams are split from. 0 by default.\n" +
+                "-G is the number of games to play. 10000 by default.\n" +
+                "-L is the length of the number lines. 20 by default.\n" +
+                "-M is the maximum value of the numbers in the lines. 10 by default.\n" +
+                "-D are the difficulties of player 1 and player 2, from 1 (easy) " +
+                "to 5 (safe), as for core.Main. 3 and 2 by default.\n" +
+                "-FILE receives the distributions of the players' move times as CSV,\n" +
+                " or has a record of each game appended to it, to be checked with core.Replayer.\n");
+        System.exit(1);
+    }
+
+    /** The source of each game's random number stream. */
+    private final SplittableRandom _streams;
+
+    /** The game parameters. */
+    private final int _length, _max, _p1, _p2;
+
+    /** The number of games played, and won by each player. */
+    private long _games, _p1Wins, _p2Wins;
+
+    /** The sum of player 1's margins, and of their squares. */
+    private long _marginSum;
+    private double _marginSquares;
+
+    /** The time spent playing games, in nanoseconds. */
+    private long _nanos;
+
+    /** The times each player took to make its moves, and the times its
+     *  engine took to choose them, or null if they aren't recorded. */
+    private LatencyHistogram _p1Latency, _p1Engine, _p2Latency, _p2Engine;
+
+    /** Where the record of each game is written, or null. */
+    private DataOutputStream _records;
+
+}
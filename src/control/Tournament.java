@@ -0,0 +1,253 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Plays every pair of machine player difficulties against each other
+ *  over a grid of line lengths and maximum number values, and reports a
+ *  matrix of win rates and mean margins for each point of the grid and
+ *  the latency of each difficulty's moves. The games are split into
+ *  small tasks run by a work-stealing ForkJoinPool, which add their
+ *  results to shared lock-free counters. */
+public class Tournament {
+
+    /** Runs the tournament described by ARGS, as in {@link #usage}. */
+    public static void main(String... args) {
+        String options = "--seed= --games= --lengths= --maxes= --difficulties= --threads=";
+        CommandArgs cArgs = new CommandArgs(options, args);
+        if (!cArgs.ok()) {
+            usage();
+        }
+        long seed = 0;
+        int games = 1000, threads = Runtime.getRuntime().availableProcessors();
+        int[] lengths = { 20 }, maxes = { 10 }, difficulties = { 1, 2, 3, 4, 5 };
+        try {
+            if (cArgs.containsKey("--seed")) {
+                seed = cArgs.getLong("--seed");
+            }
+            if (cArgs.containsKey("--games")) {
+                games = cArgs.getInt("--games");
+            }
+            if (cArgs.containsKey("--threads")) {
+                threads = cArgs.getInt("--threads");
+            }
+            if (cArgs.containsKey("--lengths")) {
+                lengths = parseList(cArgs.getLast("--lengths"));
+            }
+            if (cArgs.containsKey("--maxes")) {
+                maxes = parseList(cArgs.getLast("--maxes"));
+            }
+            if (cArgs.containsKey("--difficulties")) {
+                difficulties = parseList(cArgs.getLast("--difficulties"));
+            }
+        } catch (NumberFormatException e) {
+            usage();
+        }
+        if (games < 1 || threads < 1) {
+            usage();
+        }
+        for (int d : difficulties) {
+            if (d < 1 || d > 5) {
+                usage();
+            }
+        }
+        for (int length : lengths) {
+            if (length < 1) {
+                usage();
+            }
+        }
+        for (int max : maxes) {
+            if (max < 1) {
+                usage();
+            }
+        }
+        Tournament tournament = new Tournament(lengths, maxes, difficulties);
+        long start = System.nanoTime();
+        tournament.run(seed, games, threads);
+        tournament.report();
+        System.out.printf("Time: %.2f seconds\n", (System.nanoTime() - start) / 1e9);
+    }
+
+    /** A tournament between machine players of DIFFICULTIES on lines of
+     *  every one of LENGTHS numbers of at most every one of MAXES. */
+    public Tournament(int[] lengths, int[] maxes, int[] difficulties) {
+        _lengths = lengths;
+        _maxes = maxes;
+        _difficulties = difficulties;
+        int d = difficulties.length;
+        _cells = new Cell[lengths.length][maxes.length][d][d];
+        for (Cell[][][] byMax : _cells) {
+            for (Cell[][] byP1 : byMax) {
+                for (Cell[] byP2 : byP1) {
+                    for (int i = 0; i < d; i++) {
+                        byP2[i] = new Cell();
+                    }
+                }
+            }
+        }
+        _latencies = new LatencyHistogram[lengths.length][maxes.length][d];
+        for (LatencyHistogram[][] byMax : _latencies) {
+            for (LatencyHistogram[] byDifficulty : byMax) {
+                for (int i = 0; i < d; i++) {
+                    byDifficulty[i] = new LatencyHistogram();
+                }
+            }
+        }
+    }
+
+    /** Plays GAMES games for every point of the grid and pair of
+     *  difficulties on THREADS threads, with game seeds drawn from streams
+     *  split off a SplittableRandom with seed SEED. */
+    public void run(long seed, int games, int threads) {
+        SplittableRandom streams = new SplittableRandom(seed);
+        List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        int d = _difficulties.length;
+        for (int l = 0; l < _lengths.length; l++) {
+            for (int m = 0; m < _maxes.length; m++) {
+                for (int p1 = 0; p1 < d; p1++) {
+                    for (int p2 = 0; p2 < d; p2++) {
+                        for (int first = 0; first < games; first += GAMES_PER_TASK) {
+                            tasks.add(pool.submit(new Match(streams.split(), l, m, p1, p2,
+                                    Math.min(GAMES_PER_TASK, games - first))));
+                        }
+                    }
+                }
+            }
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+        pool.shutdown();
+    }
+
+    /** Prints the results of the games played. */
+    public void report() {
+        int d = _difficulties.length;
+        for (int l = 0; l < _lengths.length; l++) {
+            for (int m = 0; m < _maxes.length; m++) {
+                System.out.printf("\nLength %d, max %d: P1 win rate / mean P1 margin"
+                                  + " (rows are P1, columns are P2)\n",
+                                  _lengths[l], _maxes[m]);
+                System.out.printf("%6s", "");
+                for (int p2 = 0; p2 < d; p2++) {
+                    System.out.printf(" %17s", "D" + _difficulties[p2]);
+                }
+                System.out.println();
+                for (int p1 = 0; p1 < d; p1++) {
+                    System.out.printf("%6s", "D" + _difficulties[p1]);
+                    for (int p2 = 0; p2 < d; p2++) {
+                        Cell cell = _cells[l][m][p1][p2];
+                        long n = cell._games.sum();
+                        System.out.printf(" %17s", String.format("%.1f%% / %+.2f",
+                                100.0 * cell._p1Wins.sum() / n,
+                                (double) cell._marginSum.sum() / n));
+                    }
+                    System.out.println();
+                }
+                System.out.println("Move latency:");
+                for (int i = 0; i < d; i++) {
+                    LatencyHistogram latency = _latencies[l][m][i];
+                    System.out.printf("%6s %s  (%d moves)\n", "D" + _difficulties[i],
+                                      latency, latency.count());
+                }
+            }
+        }
+    }
+
+    /** @return the comma-separated integers in LIST. */
+    private static int[] parseList(String list) {
+        String[] items = list.split(",");
+        int[] result = new int[items.length];
+        for (int i = 0; i < items.length; i++) {
+            result[i] = Integer.parseInt(items[i].trim());
+        }
+        return result;
+    }
+
+    /** The results of the games between one pair of difficulties at one
+     *  point of the grid. */
+    private static class Cell {
+        /** The number of games, those won by player 1, and the sum of
+         *  player 1's margins. */
+        final LongAdder _games = new LongAdder(), _p1Wins = new LongAdder(),
+            _marginSum = new LongAdder();
+    }
+
+    /** A task that plays some of the games of one cell. */
+    private class Match implements Runnable {
+
+        /** A task playing GAMES games of the cell for lengths[L], maxes[M]
+         *  and difficulties[P1] against difficulties[P2], seeded from
+         *  STREAM. */
+        Match(SplittableRandom stream, int l, int m, int p1, int p2, int games) {
+            _stream = stream;
+            _l = l; _m = m; _p1 = p1; _p2 = p2;
+            _games = games;
+        }
+
+        @Override
+        public void run() {
+            Cell cell = _cells[_l][_m][_p1][_p2];
+            LatencyHistogram p1Latency = new LatencyHistogram(), //Merged once at the end, so tasks never record into shared histograms.
+                p2Latency = new LatencyHistogram();
+            for (int i = 0; i < _games; i++) {
+                Game game = new Game(_stream.nextInt(), _lengths[_l], _maxes[_m],
+                                     _difficulties[_p1], _difficulties[_p2]);
+                game.simulate(p1Latency, p2Latency);
+                int margin = game.getNumberLine().getP1Total()
+                    - game.getNumberLine().getP2Total();
+                cell._games.increment();
+                if (margin > 0) {
+                    cell._p1Wins.increment();
+                }
+                cell._marginSum.add(margin);
+            }
+            _latencies[_l][_m][_p1].add(p1Latency);
+            _latencies[_l][_m][_p2].add(p2Latency);
+        }
+
+        /** The source of this task's game seeds. */
+        private final SplittableRandom _stream;
+
+        /** The indices of this task's cell, and its number of games. */
+        private final int _l, _m, _p1, _p2, _games;
+    }
+
+    /** A description of the command line format. */
+    public static void usage() {
+        System.out.print("\n--Tournament usage instructions--\n" +
+                "[ --seed=S ] [ --games=G ] [ --lengths=L,... ] [ --maxes=M,... ]\n" +
+                "[ --difficulties=D,... ] [ --threads=P ]\n" +
+                "-S is the seed the games' random number streams are split from. 0 by default.\n" +
+                "-G is the number of games per pair of difficulties and grid point. " +
+                "1000 by default.\n" +
+                "-L are the number line lengths of the grid, at least 1. 20 by default.\n" +
+                "-M are the maximum number values of the grid, at least 1. 10 by default.\n" +
+                "-D are the difficulties that play each other, from 1 to 5. All by default.\n" +
+                "-P is the number of threads that play games. One per core by default.\n");
+        System.exit(1);
+    }
+
+    /** The number of games played by each task. */
+    private static final int GAMES_PER_TASK = 64;
+
+    /** The grid of line lengths and maximum number values. */
+    private final int[] _lengths, _maxes;
+
+    /** The difficulties that play each other. */
+    private final int[] _difficulties;
+
+    /** The results for every grid point and pair of difficulties, indexed
+     *  by length, max, player 1's and player 2's difficulty. */
+    private final Cell[][][][] _cells;
+
+    /** The latency of the moves of each difficulty at every grid point,
+     *  indexed by length, max and difficulty. */
+    private final LatencyHistogram[][][] _latencies;
+
+}
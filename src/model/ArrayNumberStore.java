@@ -0,0 +1,24 @@
+package core;
+
+/** A NumberStore that keeps its numbers in an int array. */
+public class ArrayNumberStore extends NumberStore {
+
+    /** A store of NUMBERS, which must not be modified afterwards. */
+    public ArrayNumberStore(int[] numbers) {
+        _numbers = numbers;
+    }
+
+    @Override
+    public int get(int index) {
+        return _numbers[index];
+    }
+
+    @Override
+    public int length() {
+        return _numbers.length;
+    }
+
+    /** The numbers of this store. */
+    private final int[] _numbers;
+
+}
@@ -0,0 +1,178 @@
+package core;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/** A compact record of a game of Number Grab: the parameters its number
+ *  line was made from, its modes, the moves made, and the final totals.
+ *  The line is not stored, since it is determined by the parameters.
+ *  Each move takes two bits, four to a byte with the first move in the
+ *  low bits: LEFT, RIGHT, PASS, or FORFEIT for a turn lost in frenzy mode.
+ *  Players move alternately, player 1 first, whatever the moves are.
+ *  <p>
+ *  A record is written as the big-endian ints MAGIC, seed, length and max,
+ *  a byte of mode flags, the ints player 1 total, player 2 total and number
+ *  of moves, then the packed moves. Records are simply appended to make an
+ *  archive. */
+public class GameRecord {
+
+    /** A record of a game with no moves yet, on a line made from SEED,
+     *  LENGTH and MAX, with the mode flags MODES. */
+    public GameRecord(int seed, int length, int max, int modes) {
+        _seed = seed;
+        _length = length;
+        _max = max;
+        _modes = modes;
+        _moves = new byte[16];
+    }
+
+    /** An empty record, to be filled by read. */
+    public GameRecord() {
+        this(0, 0, 0, 0);
+    }
+
+    /** Adds MOVE, one of LEFT, RIGHT, PASS or FORFEIT, to the end of this
+     *  record. */
+    public void add(int move) {
+        if (move < LEFT || move > FORFEIT) {
+            throw new IllegalArgumentException("not a move: " + move);
+        }
+        int index = _count >>> 2;
+        if (index == _moves.length) {
+            _moves = Arrays.copyOf(_moves, 2 * index);
+        }
+        if ((_count & 3) == 0) {
+            _moves[index] = (byte) move; //Clears whatever a longer record left here.
+        } else {
+            _moves[index] |= move << ((_count & 3) << 1);
+        }
+        _count += 1;
+    }
+
+    /** Records P1TOTAL and P2TOTAL as the game's final totals. */
+    public void finish(int p1Total, int p2Total) {
+        _p1Total = p1Total;
+        _p2Total = p2Total;
+    }
+
+    /** @return the number of moves recorded. */
+    public int size() {
+        return _count;
+    }
+
+    /** @return move K, counting from 0. */
+    public int move(int k) {
+        return (_moves[k >>> 2] >>> ((k & 3) << 1)) & 3;
+    }
+
+    /** @return the seed of the game's line. */
+    public int seed() {
+        return _seed;
+    }
+
+    /** @return the length of the game's line. */
+    public int length() {
+        return _length;
+    }
+
+    /** @return the largest number allowed in the game's line. */
+    public int max() {
+        return _max;
+    }
+
+    /** @return true iff the game had every mode in MODE. */
+    public boolean hasMode(int mode) {
+        return (_modes & mode) == mode;
+    }
+
+    /** @return player 1's final total. */
+    public int getP1Total() {
+        return _p1Total;
+    }
+
+    /** @return player 2's final total. */
+    public int getP2Total() {
+        return _p2Total;
+    }
+
+    /** Writes this record to OUT. */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(_seed);
+        out.writeInt(_length);
+        out.writeInt(_max);
+        out.writeByte(_modes);
+        out.writeInt(_p1Total);
+        out.writeInt(_p2Total);
+        out.writeInt(_count);
+        out.write(_moves, 0, (_count + 3) >>> 2);
+    }
+
+    /** @return the number of bytes of the record at the position of IN,
+     *  or -1 if IN doesn't yet hold enough of it to tell. IN is not
+     *  changed. */
+    public static long recordSize(ByteBuffer in) {
+        if (in.remaining() < HEADER_BYTES) {
+            return -1;
+        }
+        int count = in.getInt(in.position() + HEADER_BYTES - 4);
+        return HEADER_BYTES + ((count + 3L) >>> 2);
+    }
+
+    /** Replaces the contents of this record with the record at the
+     *  position of IN, which must hold all of it, and advances IN past it.
+     *  Throws IllegalArgumentException if IN doesn't hold a record. */
+    public void read(ByteBuffer in) {
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IllegalArgumentException("not a game record");
+            }
+            _seed = in.getInt();
+            _length = in.getInt();
+            _max = in.getInt();
+            _modes = in.get();
+            _p1Total = in.getInt();
+            _p2Total = in.getInt();
+            _count = in.getInt();
+            if (_count < 0) {
+                throw new IllegalArgumentException("bad move count " + _count);
+            }
+            int bytes = (_count + 3) >>> 2;
+            if (bytes > _moves.length) {
+                _moves = new byte[Integer.highestOneBit(bytes) << 1];
+            }
+            in.get(_moves, 0, bytes);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated game record");
+        }
+    }
+
+    /** The moves. */
+    public static final int LEFT = 0, RIGHT = 1, PASS = 2, FORFEIT = 3;
+
+    /** The mode flags. */
+    public static final int FRENZIED = 1, TIMED = 2, PASSING = 4, LAZY = 8;
+
+    /** The first int of every record. */
+    static final int MAGIC = 0x4e475231; //"NGR1"
+
+    /** The number of bytes in a record before its moves. */
+    static final int HEADER_BYTES = 29;
+
+    /** The parameters of the game's line, and its mode flags. */
+    private int _seed, _length, _max, _modes;
+
+    /** The final totals. */
+    private int _p1Total, _p2Total;
+
+    /** The number of moves. */
+    private int _count;
+
+    /** The packed moves. The bits after the last move of its byte are
+     *  clear; later bytes may hold anything. */
+    private byte[] _moves;
+
+}
@@ -22,8 +22,10 @@ public class HumanPlayer extends Player {
         Stopwatch stopwatch = new Stopwatch();
         stopwatch.start();
         int move = _game.getMove(); //Get a move from the command line input.
-        if (_game.getFrenzied() && stopwatch.getElapsed() > 3000) {
+        if (_game.getFrenzied() && stopwatch.getElapsed() > Game.FRENZY_LIMIT) {
             System.out.println("Too slow! Turn doesn't count!");
+            _game.getNumberLine().pass(name());
+            _game.recordMove(GameRecord.FORFEIT);
         } else {
             if (move != 2) {
                 if (name() == P1) {
@@ -31,8 +33,11 @@ public class HumanPlayer extends Player {
                 } else {
                     _game.getNumberLine().grab(P2, move);
                 }
+                _game.recordMove(move);
             } else {
                 System.out.println("Turn passed.");
+                _game.getNumberLine().pass(name());
+                _game.recordMove(GameRecord.PASS);
             }
         }
         stopwatch.stop();
@@ -0,0 +1,40 @@
+package core;
+
+/** A NumberStore whose numbers are never stored: the number at an index is
+ *  computed from the seed and the index whenever it is asked for, with a
+ *  counter-based generator (the SplitMix64 mixing function applied to
+ *  the index). Lines of any length take constant memory and no time to
+ *  create. */
+public class LazyNumberStore extends NumberStore {
+
+    /** A store of LENGTH numbers from 1 to MAX determined by SEED. */
+    public LazyNumberStore(long seed, int length, int max) {
+        _seed = seed;
+        _length = length;
+        _max = max;
+    }
+
+    @Override
+    public int get(int index) {
+        long z = _seed + (index + 1L) * GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        z = z ^ (z >>> 31);
+        return (int) (((z >>> 32) * _max) >>> 32) + 1; //Scales the top 32 bits into [0, max).
+    }
+
+    @Override
+    public int length() {
+        return _length;
+    }
+
+    /** The increment between the generator states of successive indices. */
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /** The seed of this store's numbers. */
+    private final long _seed;
+
+    /** The number of numbers and the largest number. */
+    private final int _length, _max;
+
+}
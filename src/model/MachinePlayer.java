@@ -13,31 +13,133 @@ public class MachinePlayer extends Player {
     
     /** A new MachinePlayer that plays with AI level DIFFICULTY. */
     public MachinePlayer(Game game, PlayerName name, int difficulty) {
+        this(game, name, difficulty, 1, false);
+    }
+    
+    /** A new MachinePlayer that plays with AI level DIFFICULTY and
+     *  searches with THREADS threads. If PONDERING, it searches on its
+     *  opponent's time too. */
+    public MachinePlayer(Game game, PlayerName name, int difficulty,
+                         int threads, boolean pondering) {
         _game = game;
         _name = name;
+        _pondering = pondering;
+        _clock = new ClockManager(game);
         if (difficulty == 1) {
             _moveFinder = new EasyMoveFinder(this, game);
         } else if (difficulty == 2) {
             _moveFinder = new MediumMoveFinder(this, game);
+        } else if (difficulty == 3) {
+            _table = new TranspositionTable(TranspositionTable.bitsFor(game.getLength()));
+            _moveFinder = new HardMoveFinder(this, game, _table, threads);
+        } else if (difficulty == 4) {
+            _moveFinder = new PerfectMoveFinder(this, game);
         } else {
-            _moveFinder = new HardMoveFinder(this, game);
+            _moveFinder = new ParityMoveFinder(this, game);
         }
     }
 
+    @Override
+    public SearchStats getStats() {
+        return _moveFinder.getStats();
+    }
+
+    @Override
+    public LatencyHistogram getEngineLatency() {
+        return _moveFinder.getLatency();
+    }
+
+    @Override
+    public void setEngineLatency(LatencyHistogram latency) {
+        _moveFinder.setLatency(latency);
+    }
+
     @Override
     public void makeMove(NumberLine numberLine) {
-        int move = _moveFinder.getMove();
-        System.out.print("Opponent takes the ");
-        if (move == 0) {
-            System.out.println("left number.");
-        } else {
-            System.out.println("right number. ");
+        stopPondering();
+        long start = System.nanoTime();
+        int move = ponderedMove(numberLine);
+        if (move < 0) {
+            move = _moveFinder.getMove(_clock.deadline(this, numberLine));
+        }
+        if (_moveFinder.getLatency() != null) {
+            _moveFinder.getLatency().record(System.nanoTime() - start);
+        }
+        if (move == 2) {
+            if (!_game.getHeadless()) {
+                System.out.println("Opponent passes.");
+            }
+            _game.getNumberLine().pass(name());
+            _game.recordMove(GameRecord.PASS);
+            return;
+        }
+        if (!_game.getHeadless()) {
+            System.out.print("Opponent takes the ");
+            if (move == 0) {
+                System.out.println("left number.");
+            } else {
+                System.out.println("right number. ");
+            }
         }
         if (name() == P1) {
             _game.getNumberLine().grab(P1, move);
         } else {
             _game.getNumberLine().grab(P2, move);
         }
+        _game.recordMove(move);
+    }
+    
+    /** Searches for replies to both of the opponent's possible moves on
+     *  NUMBERLINE on a background thread, if pondering is enabled. */
+    @Override
+    public void startPondering(NumberLine numberLine) {
+        if (!_pondering || !(_moveFinder instanceof HardMoveFinder)
+            || numberLine.size() < 2) {
+            return;
+        }
+        _ponderer = new Ponderer((HardMoveFinder) _moveFinder, numberLine);
+        _ponderThread = new Thread(_ponderer, "ponder-" + _name);
+        _ponderThread.setDaemon(true);
+        _ponderThread.start();
+    }
+    
+    /** Stops pondering, keeping the replies found so far. */
+    @Override
+    public void stopPondering() {
+        if (_ponderThread == null) {
+            return;
+        }
+        HardMoveFinder moveFinder = (HardMoveFinder) _moveFinder;
+        moveFinder.stop();
+        try {
+            _ponderThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        moveFinder.resume();
+        _ponderThread = null;
+    }
+    
+    /** Returns the reply found while pondering if the opponent's move
+     *  has led to NUMBERLINE and that reply was searched as deeply as a
+     *  normal move would be, and -1 otherwise. */
+    private int ponderedMove(NumberLine numberLine) {
+        Ponderer ponderer = _ponderer;
+        _ponderer = null;
+        if (ponderer == null) {
+            return -1;
+        }
+        for (int side = 0; side < 2; side++) {
+            NumberLine line = ponderer._lines[side];
+            if (line.leftIndex() == numberLine.leftIndex()
+                && line.rightIndex() == numberLine.rightIndex()
+                && ponderer._depths[side] >= Math.min(HardMoveFinder.MAX_DEPTH,
+                                                      numberLine.size())) {
+                Reporter.debug(1, "%s uses its pondered move", _name);
+                return ponderer._moves[side];
+            }
+        }
+        return -1;
     }
     
     /** @return this player's name. */
@@ -45,12 +147,69 @@ public class MachinePlayer extends Player {
         return _name;
     }
     
+    /** Searches for this player's replies to both of the opponent's
+     *  possible moves, one move deeper at a time for each in turn, until
+     *  stopped. */
+    private class Ponderer implements Runnable {
+        
+        /** A Ponderer that searches with MOVEFINDER for replies to the
+         *  moves the opponent can make on NUMBERLINE. */
+        Ponderer(HardMoveFinder moveFinder, NumberLine numberLine) {
+            _moveFinder = moveFinder;
+            for (int side = 0; side < 2; side++) {
+                _lines[side] = numberLine.copy();
+                _lines[side].grab(_name.opponent(), side);
+            }
+        }
+        
+        @Override
+        public void run() {
+            for (int depth = 1; depth <= HardMoveFinder.MAX_DEPTH; depth++) {
+                for (int side = 0; side < 2; side++) {
+                    NumberLine line = _lines[side];
+                    if (line.isEmpty() || _depths[side] >= Math.min(depth, line.size())) {
+                        continue; //Nothing left to search for this reply.
+                    }
+                    int move = _moveFinder.getMove(line, depth, HardMoveFinder.NO_DEADLINE);
+                    if (_moveFinder.lastDepth() < Math.min(depth, line.size())) {
+                        return; //Stopped.
+                    }
+                    _moves[side] = move;
+                    _depths[side] = _moveFinder.lastDepth();
+                }
+            }
+        }
+        
+        /** The engine searched with. */
+        private final HardMoveFinder _moveFinder;
+        
+        /** The lines after the opponent grabs from each side, the best
+         *  reply found on each, and the depth it was searched to. */
+        private final NumberLine[] _lines = new NumberLine[2];
+        private final int[] _moves = new int[2], _depths = new int[2];
+    }
+    
     /** The game of Number Grab this MachinePlayer is playing. */
     private final Game _game;
     
     /** This MachinePlayer's move decision engine. */
     private final MoveFinder _moveFinder;
     
+    /** Decides how long this player may spend on each move. */
+    private final ClockManager _clock;
+    
+    /** The positions this player has searched so far this game. Kept for
+     *  the whole game, so that later moves can reuse earlier searches. */
+    private TranspositionTable _table;
+    
+    /** True iff this player searches on its opponent's time. */
+    private final boolean _pondering;
+    
+    /** The replies found while the opponent last thought, and the thread
+     *  that is searching for them, if it is still running. */
+    private Ponderer _ponderer;
+    private Thread _ponderThread;
+    
     /** This player's name. */
     private PlayerName _name;
 
@@ -1,6 +1,5 @@
 package core;
 
-import java.util.LinkedList;
 import java.util.Random;
 import static core.PlayerName.*;
 
@@ -17,9 +16,34 @@ public class NumberLine {
      * @param player2 is the second player of Number Grab.*/
     public NumberLine(int length, int max, Random random
             , Player player1, Player player2) {
-        for (int i = length; i > 0; i--) {
-            _numbers.add(random.nextInt(max) + 1); //Add a random number in the allowed range to the line. 
+        if (PackedNumberStore.fits(max)) { //Pack the numbers into as few bits as max allows.
+            PackedNumberStore numbers = new PackedNumberStore(length, max);
+            for (int i = 0; i < length; i++) {
+                numbers.set(i, random.nextInt(max) + 1); //Add a random number in the allowed range to the line. 
+            }
+            _numbers = numbers;
+        } else {
+            int[] numbers = new int[length];
+            for (int i = 0; i < length; i++) {
+                numbers[i] = random.nextInt(max) + 1;
+            }
+            _numbers = new ArrayNumberStore(numbers);
         }
+        _right = length;
+        sumParities();
+        _controllingPlayer = "P1"; _player1 = player1;
+        _player2 = player2;
+    }
+    
+    /** A new number line for a game of Number Grab. The parity sums of
+     *  the line are only found when first needed, since the numbers may be
+     *  costly to read.
+     * @param numbers are the numbers of the line, from left to right.
+     * @param player1 is the first player of Number Grab. This player moves first.
+     * @param player2 is the second player of Number Grab.*/
+    public NumberLine(NumberStore numbers, Player player1, Player player2) {
+        _numbers = numbers;
+        _right = numbers.length();
         _controllingPlayer = "P1"; _player1 = player1;
         _player2 = player2;
     }
@@ -39,17 +63,20 @@ public class NumberLine {
      * 0 pulls from the left, 1 pulls from the right. */
     public int grab(PlayerName name, int side) {
         Reporter.debug(1, "%s grabs with move %d", name, side);
-        assert side == 0 || side == 1 : _numbers.size() > 0;
+        assert side == 0 || side == 1 : size() > 0;
         int num;
+        _passes = 0;
         if (side == 0) {
-           num = _numbers.removeFirst();
+            num = _numbers.get(_left);
+            addParity(_left++, -num);
             if (name == P1) {
                 setP1Total(getP1Total() + num);
             } else {
                 setP2Total(getP2Total() + num);
             }
         } else {
-            num = _numbers.removeLast();
+            num = _numbers.get(--_right);
+            addParity(_right, -num);
             if (name == P1) {
                 setP1Total(getP1Total() + num);
             } else {
@@ -59,15 +86,51 @@ public class NumberLine {
         return num;
     }
     
+    /** Undoes the last grab made from SIDE by player NAME, putting the number
+     *  back on the line and taking it off that player's total, and returns
+     *  it. Together with grab this lets a search explore moves on one line
+     *  without copying it. Works in O(1) time. The count of passes made
+     *  since the last grab is left at 0. */
+    public int ungrab(PlayerName name, int side) {
+        Reporter.debug(1, "%s ungrabs with move %d", name, side);
+        assert side == 0 || side == 1;
+        int num;
+        if (side == 0) {
+            num = _numbers.get(--_left);
+            addParity(_left, num);
+        } else {
+            num = _numbers.get(_right);
+            addParity(_right++, num);
+        }
+        if (name == P1) {
+            setP1Total(getP1Total() - num);
+        } else {
+            setP2Total(getP2Total() - num);
+        }
+        return num;
+    }
+    
+    /** Records that player NAME passed the turn, or forfeited it, leaving
+     *  the numbers as they were. */
+    public void pass(PlayerName name) {
+        Reporter.debug(1, "%s passes", name);
+        _passes += 1;
+    }
+    
+    /** @return the number of turns passed in a row since the last grab. */
+    public int passes() {
+        return _passes;
+    }
+    
     /** @return the nth number in this number line. The first
      *  number is n = 0. */
     public int get(int n) {
-        return _numbers.get(n);
+        return _numbers.get(_left + n);
     }
     
     /** @return the number of numbers in this NumberLine. */
     public int size() {
-        return _numbers.size();
+        return _right - _left;
     }
     
     /** @return if this NumberLine is empty. */
@@ -76,46 +139,68 @@ public class NumberLine {
     }
     
     /** @return a copy of this NumberLine, such that any changes
-     *  made to the copy do not effect this NumberLine. Works in 
-     *  O(N) time, where N is the number of numbers remaining in 
-     *  the NumberLine. */
+     *  made to the copy do not effect this NumberLine. The copy is a
+     *  view that shares this line's numbers, which are never modified,
+     *  so this works in O(1) time. */
     public NumberLine copy() {
         NumberLine result = new NumberLine(_player1, _player2);
-        LinkedList<Integer> numbers = new LinkedList<Integer>();
-        for (int n : _numbers) {
-            numbers.add(n);
-        }
-        result.setNumbers(numbers);
+        result._numbers = _numbers;
+        result._left = _left;
+        result._right = _right;
+        result._controllingPlayer = _controllingPlayer;
         result.setP1Total(getP1Total());
         result.setP2Total(getP2Total());
+        result._paritySums = _paritySums;
+        result._evenSum = _evenSum;
+        result._oddSum = _oddSum;
+        result._passes = _passes;
         return result;
     }
     
     @Override
     public String toString() {
-        if (_numbers.size() == 0) {
-            return "";
+        return render(new StringBuilder(), 0).toString();
+    }
+    
+    /** Appends this NumberLine to OUT, as toString() returns it, and
+     *  returns OUT. If WINDOW is positive and the line is longer than
+     *  2 * WINDOW numbers, only the WINDOW numbers at each end are shown,
+     *  with the count of the numbers between them. Works in time linear in
+     *  the number of numbers shown. */
+    public StringBuilder render(StringBuilder out, int window) {
+        int size = size();
+        if (size == 0) {
+            return out;
         }
-        String front = "< " + String.valueOf(_numbers.getFirst()) + " || ";
-        String middle = "";
-        for (int i = 1; i < _numbers.size() - 1; i++) {
-            middle += String.valueOf(_numbers.get(i)) + " | ";
+        out.append("[P1: ").append(getP1Total()).append("][P2: ")
+            .append(getP2Total()).append("]  < ").append(get(0));
+        if (size == 1) {
+            return out.append(" >");
         }
-        if (middle.length() > 1) {
-            middle = middle.substring(0, middle.length() - 2);
-        } else {
-            middle = "";
+        out.append(" || ");
+        int shown = size - 2, hidden = 0; //Middle numbers shown at each end, and hidden between them.
+        if (window > 0 && size > 2 * window) {
+            shown = window - 1;
+            hidden = size - 2 * window;
         }
-        String end = "|| " + String.valueOf(_numbers.getLast()) + " >";
-        String p1 = "[P1: " + String.valueOf(getP1Total()) + "]";
-        String p2 = "[P2: " + String.valueOf(getP2Total()) + "]";
-        if (_numbers.size() == 2) {
-            return p1 + p2 + "  " + front + end.substring(3, end.length());
-        } else if (_numbers.size() == 1) {
-            return p1 + p2 + "  " + front.substring(0, front.length() - 3) + ">";
+        if (hidden == 0) {
+            for (int i = 1; i < size - 1; i++) {
+                out.append(get(i)).append(i < size - 2 ? " | " : " ");
+            }
         } else {
-            return p1 + p2 + "  "  + front + middle + end;
+            for (int i = 1; i <= shown; i++) {
+                out.append(get(i)).append(" | ");
+            }
+            out.append("... ").append(hidden).append(" more ...");
+            for (int i = size - 1 - shown; i < size - 1; i++) {
+                out.append(" | ").append(get(i));
+            }
+            out.append(' ');
         }
+        if (size > 2) {
+            out.append("|| ");
+        }
+        return out.append(get(size - 1)).append(" >");
     }
     
     /** Swap turns on this line. */
@@ -132,14 +217,96 @@ public class NumberLine {
         return _controllingPlayer;
     }
     
-    /** @return the LinkedList used to hold this NumberLine's numbers. */
-    public LinkedList<Integer> getNumbers() {
-        return _numbers;
+    /** @return a new array holding the numbers remaining in this
+     *  NumberLine, from left to right. */
+    public int[] getNumbers() {
+        int[] result = new int[size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = _numbers.get(_left + i);
+        }
+        return result;
     }
     
-    /** Set the LinkedList used to hold this NumberLine's numbers. */
-    public void setNumbers(LinkedList<Integer> numbers) {
-        _numbers = numbers;
+    /** Set the numbers of this NumberLine to NUMBERS, from left to right.
+     *  NUMBERS must not be modified afterwards. */
+    public void setNumbers(int... numbers) {
+        _numbers = PackedNumberStore.of(numbers);
+        _left = 0;
+        _right = numbers.length;
+        sumParities();
+    }
+    
+    /** @return the sum of every other remaining number, starting from the
+     *  nth, both ways. The first number is n = 0. With an even number of
+     *  numbers left, the player to move can take every number of either
+     *  parity, so the mover can be sure of winning by at least the
+     *  difference of paritySum(0) and paritySum(1). The sums are kept up to
+     *  date by grab and ungrab in O(1) time, once they are known. */
+    public int paritySum(int n) {
+        if (!_paritySums) {
+            sumParities();
+        }
+        return ((_left + n) & 1) == 0 ? _evenSum : _oddSum;
+    }
+    
+    /** @return the sum of the remaining numbers from the FROMth to the
+     *  (TO - 1)th, where the first number is 0. Takes O(1) time if
+     *  hasPrefixSums(), and otherwise reads the numbers. */
+    public int sum(int from, int to) {
+        return _numbers.sum(_left + from, _left + to);
+    }
+    
+    /** @return the sum of the remaining numbers. */
+    public int remainingTotal() {
+        return sum(0, size());
+    }
+    
+    /** @return true iff sum works in O(1) time and no number is negative,
+     *  as when the numbers are packed. */
+    public boolean hasPrefixSums() {
+        return _numbers.hasPrefixSums();
+    }
+    
+    /** @return true iff paritySum works in O(1) time. Otherwise it reads
+     *  every remaining number the first time it is called. */
+    public boolean hasParitySums() {
+        return _paritySums;
+    }
+    
+    /** Sums the remaining numbers at even and at odd indices. */
+    private void sumParities() {
+        _evenSum = _oddSum = 0;
+        for (int i = _left; i < _right; i++) {
+            if ((i & 1) == 0) {
+                _evenSum += _numbers.get(i);
+            } else {
+                _oddSum += _numbers.get(i);
+            }
+        }
+        _paritySums = true;
+    }
+    
+    /** Adds NUM to the sum of the parity of INDEX, if the sums are known. */
+    private void addParity(int index, int num) {
+        if (_paritySums) {
+            if ((index & 1) == 0) {
+                _evenSum += num;
+            } else {
+                _oddSum += num;
+            }
+        }
+    }
+    
+    /** @return the index of the leftmost remaining number among the
+     *  numbers this NumberLine was populated with. */
+    public int leftIndex() {
+        return _left;
+    }
+    
+    /** @return the index of the rightmost remaining number among the
+     *  numbers this NumberLine was populated with. */
+    public int rightIndex() {
+        return _right - 1;
     }
     
     /** @return player 1's total. */
@@ -162,8 +329,13 @@ public class NumberLine {
         _p2Total = total;
     }
 
-    /** The sequence of numbers of this NumberLine. */
-    private LinkedList<Integer> _numbers = new LinkedList<Integer>(); //Implementation uses a LinkedList for O(1) removal of items.
+    /** The numbers this NumberLine was populated with. Numbers are grabbed
+     *  by moving the ends inwards, so the store itself is never modified
+     *  and may be shared between copies. */
+    private NumberStore _numbers = new ArrayNumberStore(new int[0]);
+    
+    /** The remaining numbers are those at _left to _right - 1. */
+    private int _left = 0, _right = 0;
 
     /** A string representing the player who currently has a turn. */
     private String _controllingPlayer;
@@ -173,4 +345,13 @@ public class NumberLine {
     
     /** The totals of player 1 and player 2. */
     private int _p1Total = 0, _p2Total = 0;
+    
+    /** True iff _evenSum and _oddSum are known. */
+    private boolean _paritySums;
+    
+    /** The sums of the remaining numbers at even and at odd indices. */
+    private int _evenSum, _oddSum;
+    
+    /** The number of turns passed in a row since the last grab. */
+    private int _passes;
 }
@@ -0,0 +1,29 @@
+package core;
+
+/** The numbers a NumberLine was populated with, by index. A NumberStore
+ *  is never modified, so it can be shared by any number of lines. */
+public abstract class NumberStore {
+
+    /** @return the number at INDEX, where the first number is at 0. */
+    public abstract int get(int index);
+
+    /** @return the number of numbers in this store. */
+    public abstract int length();
+
+    /** @return the sum of the numbers at FROM to TO - 1. Takes O(TO - FROM)
+     *  time unless hasPrefixSums(). */
+    public int sum(int from, int to) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            result += get(i);
+        }
+        return result;
+    }
+
+    /** @return true iff sum takes O(1) time and the numbers are never
+     *  negative. False by default. */
+    public boolean hasPrefixSums() {
+        return false;
+    }
+
+}
@@ -0,0 +1,140 @@
+package core;
+
+/** A NumberStore that packs its numbers into the bits of a long array,
+ *  using 4, 8 or 16 bits per number, whichever is the fewest that hold
+ *  every number. With the default maximum of 10, a number takes half a
+ *  byte. Numbers must not be negative.
+ *  <p>
+ *  Sums of ranges take O(1) time: the sum of the numbers before each long
+ *  is kept, one int per long, and the numbers within a long are summed by
+ *  adding its fields in parallel, in the long itself. */
+public class PackedNumberStore extends NumberStore {
+
+    /** A store of LENGTH numbers, all 0 until set, with room for numbers up
+     *  to MAX, which must be less than 2^16. */
+    PackedNumberStore(int length, int max) {
+        if (max < 0 || max >= 1 << 16) {
+            throw new IllegalArgumentException("cannot pack numbers up to " + max);
+        }
+        _log2Bits = max < 1 << 4 ? 2 : max < 1 << 8 ? 3 : 4;
+        _perWordShift = 6 - _log2Bits;
+        _valueMask = (1 << (1 << _log2Bits)) - 1;
+        _length = length;
+        _words = new long[(int) (((long) length + (1 << _perWordShift) - 1) >>> _perWordShift)];
+    }
+
+    /** @return a store of NUMBERS, packed if they are all small enough, and
+     *  otherwise kept in an int array. NUMBERS may not be modified
+     *  afterwards. */
+    public static NumberStore of(int... numbers) {
+        int min = 0, max = 0;
+        for (int n : numbers) {
+            min = Math.min(min, n);
+            max = Math.max(max, n);
+        }
+        if (min < 0 || max >= 1 << 16) {
+            return new ArrayNumberStore(numbers);
+        }
+        PackedNumberStore result = new PackedNumberStore(numbers.length, max);
+        for (int i = 0; i < numbers.length; i++) {
+            result.set(i, numbers[i]);
+        }
+        return result;
+    }
+
+    /** @return true iff numbers up to MAX can be packed. */
+    public static boolean fits(int max) {
+        return max < 1 << 16;
+    }
+
+    @Override
+    public int get(int index) {
+        long word = _words[index >>> _perWordShift];
+        int offset = (index & ((1 << _perWordShift) - 1)) << _log2Bits;
+        return (int) (word >>> offset) & _valueMask;
+    }
+
+    @Override
+    public int length() {
+        return _length;
+    }
+
+    @Override
+    public int sum(int from, int to) {
+        int[] blockSums = blockSums();
+        return prefixSum(blockSums, to) - prefixSum(blockSums, from);
+    }
+
+    @Override
+    public boolean hasPrefixSums() {
+        return true;
+    }
+
+    /** @return the sum of the numbers before INDEX, given the BLOCKSUMS of
+     *  this store. */
+    private int prefixSum(int[] blockSums, int index) {
+        int word = index >>> _perWordShift;
+        int fields = index & ((1 << _perWordShift) - 1);
+        if (fields == 0) {
+            return blockSums[word];
+        }
+        long mask = (1L << (fields << _log2Bits)) - 1;
+        return blockSums[word] + fieldSum(_words[word] & mask);
+    }
+
+    /** @return the sum of the fields of the packed numbers WORD. */
+    private int fieldSum(long word) {
+        switch (_log2Bits) {
+        case 2: //Sixteen 4-bit fields, added pairwise into eight bytes of at most 30.
+            word = (word & 0x0f0f0f0f0f0f0f0fL) + ((word >>> 4) & 0x0f0f0f0f0f0f0f0fL);
+            return (int) ((word * 0x0101010101010101L) >>> 56); //The top byte collects the sum, at most 240.
+        case 3: //Eight bytes, added pairwise into four 16-bit fields.
+            word = (word & 0x00ff00ff00ff00ffL) + ((word >>> 8) & 0x00ff00ff00ff00ffL);
+            return (int) ((word * 0x0001000100010001L) >>> 48);
+        default: //Four 16-bit fields, added pairwise into two ints.
+            word = (word & 0x0000ffff0000ffffL) + ((word >>> 16) & 0x0000ffff0000ffffL);
+            return (int) ((word & 0xffffffffL) + (word >>> 32));
+        }
+    }
+
+    /** @return the sums of the numbers before each long of _words, and of
+     *  all the numbers, computed the first time they are needed. */
+    private int[] blockSums() {
+        int[] result = _blockSums;
+        if (result == null) { //Threads that get here at once compute equal arrays.
+            result = new int[_words.length + 1];
+            for (int i = 0; i < _words.length; i++) {
+                result[i + 1] = result[i] + fieldSum(_words[i]);
+            }
+            _blockSums = result;
+        }
+        return result;
+    }
+
+    /** Sets the number at INDEX to VALUE. Only used while filling a new
+     *  store, since stores are never modified once they are in use. */
+    void set(int index, int value) {
+        int word = index >>> _perWordShift;
+        int offset = (index & ((1 << _perWordShift) - 1)) << _log2Bits;
+        _words[word] = (_words[word] & ~((long) _valueMask << offset))
+            | ((long) value << offset);
+    }
+
+    /** The base 2 log of the number of bits per number, and of the number
+     *  of numbers per long. */
+    private final int _log2Bits, _perWordShift;
+
+    /** A mask of the bits of one number. */
+    private final int _valueMask;
+
+    /** The number of numbers stored. */
+    private final int _length;
+
+    /** The packed numbers, starting from the low bits of the first long. */
+    private final long[] _words;
+
+    /** The sums of the numbers before each long of _words, or null until
+     *  they are first needed. */
+    private volatile int[] _blockSums;
+
+}
@@ -14,6 +14,48 @@ public abstract class Player {
      * Move are made on the game NUMBERLINE. */
     public abstract void makeMove(NumberLine numberLine);
     
+    /** Called when this player's opponent starts thinking about its move
+     *  on NUMBERLINE, so that this player can think ahead meanwhile. Does
+     *  nothing by default. */
+    public void startPondering(NumberLine numberLine) {
+    }
+    
+    /** Called when this player's opponent has made its move. Does nothing
+     *  by default. */
+    public void stopPondering() {
+    }
+    
+    /** @return the counts of the searching this player has done to find
+     *  its moves, or null if it doesn't search. */
+    public SearchStats getStats() {
+        return null;
+    }
+    
+    /** @return the histogram of the times this player has taken to make
+     *  its moves, or null if they aren't recorded. */
+    public LatencyHistogram getLatency() {
+        return _latency;
+    }
+    
+    /** Record the times this player takes to make its moves in LATENCY,
+     *  or nowhere if it is null. */
+    public void setLatency(LatencyHistogram latency) {
+        _latency = latency;
+    }
+    
+    /** @return the histogram of the times this player's move finding
+     *  engine has taken to choose its moves, or null if they aren't
+     *  recorded. */
+    public LatencyHistogram getEngineLatency() {
+        return null;
+    }
+    
+    /** Record the times this player's move finding engine takes to choose
+     *  its moves in LATENCY, or nowhere if it is null. Does nothing by
+     *  default, for players without an engine. */
+    public void setEngineLatency(LatencyHistogram latency) {
+    }
+    
     /** @return this player's total time taken to make moves. */
     public double getTime() {
         return _time;
@@ -37,6 +79,10 @@ public abstract class Player {
     /** The total time this player has taken to make moves. */
     private double _time = 0;
     
+    /** The histogram of the times this player takes to make its moves, or
+     *  null. */
+    private LatencyHistogram _latency;
+    
     /** This player's name. */
     private PlayerName _name;
 
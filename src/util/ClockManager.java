@@ -0,0 +1,40 @@
+package core;
+
+/** Decides how long a machine player may search for its next move in a
+ *  game of Number Grab. In frenzy mode every move must be made within
+ *  Game.FRENZY_LIMIT. In timed mode a player's remaining time is split
+ *  evenly across the moves it still has to make. Otherwise moves have no
+ *  deadline. */
+public class ClockManager {
+
+    /** A new ClockManager for the players of GAME. */
+    public ClockManager(Game game) {
+        _game = game;
+    }
+
+    /** @return the deadline, as given by System.nanoTime(), by which PLAYER
+     *  should make its next move on NUMBERLINE. */
+    public long deadline(Player player, NumberLine numberLine) {
+        long now = System.nanoTime();
+        double budget; //In seconds.
+        if (_game.getFrenzied()) {
+            budget = Game.FRENZY_LIMIT / 1000.0;
+        } else if (_game.getTimed()) {
+            int movesLeft = (numberLine.size() + 1) / 2; //Players alternate, so this player makes about half the remaining moves.
+            budget = (_game.getTimeLimit() - player.getTime()) / Math.max(movesLeft, 1);
+        } else {
+            return MoveFinder.NO_DEADLINE;
+        }
+        budget = Math.max(0, budget * SAFETY_FACTOR);
+        Reporter.debug(2, "ClockManager: %.3f seconds for this move", budget);
+        return now + (long) (budget * 1e9);
+    }
+
+    /** The fraction of its share of the time a move is allowed to use, to
+     *  leave room for the work done around the search. */
+    private static final double SAFETY_FACTOR = 0.8;
+
+    /** The game whose clock this manages. */
+    private final Game _game;
+
+}
@@ -0,0 +1,73 @@
+package core;
+
+/** The value and best first move of a line of numbers, found without a
+ *  table of every interval. The interval dynamic program of Solution is
+ *  swept one interval length (one anti-diagonal of the table) at a time:
+ *  the values of the intervals of length K depend only on those of length
+ *  K - 1, so a single row of N values, updated in place from left to right,
+ *  is all the memory needed. Evaluating a line of N numbers takes O(N^2)
+ *  time and O(N) space, so lines far too long for a Solution can be
+ *  evaluated exactly. Values are kept as longs, so lines of any ints can
+ *  be evaluated without overflow. */
+public class Evaluation {
+
+    /** An evaluation with value VALUE and best first move BESTMOVE. */
+    private Evaluation(long value, int bestMove) {
+        _value = value;
+        _bestMove = bestMove;
+    }
+
+    /** @return the evaluation of the numbers remaining on NUMBERLINE. */
+    public static Evaluation of(NumberLine numberLine) {
+        return of(numberLine.getNumbers());
+    }
+
+    /** @return the evaluation of NUMBERS, which is not altered. */
+    public static Evaluation of(int[] numbers) {
+        return of(numbers, false);
+    }
+
+    /** @return the evaluation of NUMBERS for a game with passing iff
+     *  PASSING, as for Solution.solve. NUMBERS is not altered. */
+    public static Evaluation of(int[] numbers, boolean passing) {
+        int n = numbers.length;
+        if (n == 0) {
+            return new Evaluation(0, 0);
+        }
+        long floor = passing ? 0 : Long.MIN_VALUE;
+        long[] values = new long[n]; //values[L] is the value of the interval of the current length starting at L.
+        for (int i = 0; i < n; i++) {
+            values[i] = Math.max(numbers[i], floor);
+        }
+        for (int length = 2; length < n; length++) {
+            for (int left = 0, right = length - 1; right < n; left++, right++) {
+                values[left] = Math.max(Math.max(numbers[left] - values[left + 1],
+                                                 numbers[right] - values[left]), floor);
+            }
+        }
+        long takeLeft = n == 1 ? numbers[0] : numbers[0] - values[1];
+        long takeRight = n == 1 ? takeLeft : numbers[n - 1] - values[0];
+        if (passing && Math.max(takeLeft, takeRight) < 0) {
+            return new Evaluation(0, 2);
+        }
+        return takeLeft >= takeRight ? new Evaluation(takeLeft, 0)
+            : new Evaluation(takeRight, 1);
+    }
+
+    /** @return the largest difference between the first player's and the
+     *  second player's gains that the first player can be sure of. */
+    public long value() {
+        return _value;
+    }
+
+    /** @return the best first move, 0 for left or 1 for right, preferring
+     *  left when both are as good, or 2 to pass, as Solution does. */
+    public int bestMove() {
+        return _bestMove;
+    }
+
+    /** The value and the best first move. */
+    private final long _value;
+    private final int _bestMove;
+
+}
@@ -3,9 +3,26 @@
  */
 package core;
 
-import static core.PlayerName.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
-/** FILL IN
+/** A move finding engine with hard difficulty. Searches the game tree with
+ *  a depth-limited negamax search with alpha-beta pruning. A position's value
+ *  is the largest (most positive) difference between the mover's and the
+ *  opponent's gains from the remaining numbers that the mover can be sure
+ *  of within the search depth, assuming that every player makes the best
+ *  possible move at every step. Moves are searched on a single copy of the
+ *  line by grabbing and ungrabbing, and searched positions are remembered in
+ *  a transposition table. Numbers past the search depth are estimated by
+ *  the parity strategy (see ParityMoveFinder), whose bounds also cut off
+ *  searches that reach the end of the line, as does the total of the
+ *  numbers left, which no player can win by more than.
+ *  With more than one thread, the first few moves are split between the
+ *  threads of a ForkJoinPool: after K moves only K + 1 different intervals
+ *  of the line can remain, so each of them is searched as a separate task
+ *  sharing the table, and the first K moves are then solved from their
+ *  values.
  * @author Nick Holt
  *
  */
@@ -14,107 +31,387 @@ public class HardMoveFinder extends MoveFinder {
     /** A new HardMoveFinder which finds moves for a PLAYER of
      *  a GAME of Number Grab. */
     public HardMoveFinder (Player player, Game game) {
+        this(player, game, new TranspositionTable(DEFAULT_TABLE_BITS), 1);
+    }
+    
+    /** A new HardMoveFinder which finds moves for a PLAYER of
+     *  a GAME of Number Grab, remembers searched positions in TABLE and
+     *  searches with THREADS threads. */
+    public HardMoveFinder (Player player, Game game, TranspositionTable table,
+                           int threads) {
         super(player, game);
+        _table = table;
+        _threads = threads;
+        if (threads > 1) {
+            _pool = POOLS.computeIfAbsent(threads, ForkJoinPool::new);
+        } else {
+            _pool = null;
+        }
     }
     
     @Override
     public int getMove() {
-        int depth;
-        if (getGame().getNumberLine().size() <= 18) {
-            depth = getGame().getNumberLine().size();
-        } else {
-            depth = 9;
-        }
-        return findBestMove(getPlayer(), getGame().getNumberLine(), depth);
+        return getMove(NO_DEADLINE);
     }
     
-    /** Finds the best move for PLAYER on a NUMBERLINE. The best move is found
-     *  by choosing the move that results in a difference of at least 4 between 
-     *  the number pulled from this move and the largest remaining integer available
-     *  to pull in the line. 
-     *  If this move does not exist,  choose the move that results in the largest 
-     *  (most positive) difference between the player and the opponent's totals 
-     *  after DEPTH total moves. Assumes that every player makes the best possible 
-     *  move at every step.*/
-    private int findBestMove(Player player, NumberLine numberLine, int depth) {
+    @Override
+    public SearchStats getStats() {
+        return _stats;
+    }
+    
+    @Override
+    public int getMove(long deadline) {
+        int move = getMove(getGame().getNumberLine(), MAX_DEPTH, deadline);
+        getStats().endMove(_lastDepth);
+        return move;
+    }
+    
+    /** Returns the best move for this engine's player on NUMBERLINE,
+     *  looking at most MAXDEPTH moves ahead. Searches one move deeper at a
+     *  time, so that the best move of the deepest search completed before
+     *  DEADLINE, or before stop is called, can be returned. Each search is
+     *  cheap thanks to the table entries left by the last. NUMBERLINE is not
+     *  altered. */
+    public int getMove(NumberLine numberLine, int maxDepth, long deadline) {
+        long start = System.nanoTime();
+        int move = deepen(numberLine.copy(), maxDepth, deadline); //Search on a copy so that the caller's line isn't altered.
+        _search.flushStats();
+        getStats().addTime(System.nanoTime() - start);
+        return move;
+    }
+    
+    /** Returns the best move on NUMBERLINE for getMove(NUMBERLINE,
+     *  MAXDEPTH, DEADLINE), altering NUMBERLINE while searching. */
+    private int deepen(NumberLine numberLine, int maxDepth, long deadline) {
+        PlayerName player = getPlayer().name();
+        _lastDepth = 0;
         if (numberLine.size() == 1) {
+            _lastDepth = 1;
+            return 0;
+        }
+        int bestMove = orderMoves(player, numberLine);
+        maxDepth = Math.min(maxDepth, numberLine.size());
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            if (depth > 1 && _stopped) {
+                break;
+            }
+            _deadline = depth == 1 ? NO_DEADLINE : deadline; //Always finish at least one search.
+            _aborted = false;
+            int move;
+            if (_pool != null && depth > 2) {
+                move = findBestMoveParallel(player, numberLine, depth);
+            } else {
+                move = findBestMove(player, numberLine, depth);
+            }
+            if (_aborted) {
+                Reporter.debug(2, "HardMoveFinder: stopped at depth %d", depth);
+                break;
+            }
+            bestMove = move;
+            _lastDepth = depth;
+        }
+        return bestMove;
+    }
+    
+    /** @return the depth of the deepest search completed by the last call
+     *  of getMove. */
+    public int lastDepth() {
+        return _lastDepth;
+    }
+    
+    /** Stops the search in progress, if any, as soon as possible, and makes
+     *  later searches stop after their first iteration until resume is
+     *  called. May be called from any thread. */
+    public void stop() {
+        _stopped = true;
+    }
+    
+    /** Lets searches run until their deadlines again after stop. */
+    public void resume() {
+        _stopped = false;
+    }
+    
+    /** Finds the best move for PLAYER on a NUMBERLINE by searching DEPTH
+     *  moves ahead. NUMBERLINE is left as it was found. The result is
+     *  meaningless if the search runs out of time. */
+    private int findBestMove(PlayerName player, NumberLine numberLine, int depth) {
+        long key = TranspositionTable.key(numberLine, player);
+        long entry = _search.probe(key);
+        int first = entry != TranspositionTable.MISS ? TranspositionTable.move(entry)
+            : orderMoves(player, numberLine); //Try the best move of the last search first.
+        int best = -INFINITY, bestMove = first;
+        for (int i = 0; i < 2; i++) {
+            int side = i == 0 ? first : 1 - first;
+            int num = numberLine.grab(player, side);
+            int val = num - _search.negamax(player.opponent(), numberLine, depth - 1,
+                                            -INFINITY, num - best);
+            numberLine.ungrab(player, side);
+            if (_aborted) {
+                return bestMove;
+            }
+            Reporter.debug(2, "HardMoveFinder: move %d has value %d at depth %d", side, val, depth);
+            if (val > best) {
+                best = val;
+                bestMove = side;
+            }
+        }
+        _table.store(key, best, depth, TranspositionTable.EXACT, bestMove);
+        return bestMove;
+    }
+    
+    /** Finds the best move for PLAYER on a NUMBERLINE by searching DEPTH
+     *  moves ahead, splitting the search between this engine's threads.
+     *  NUMBERLINE is not altered. The result is meaningless if the search
+     *  runs out of time. */
+    private int findBestMoveParallel(PlayerName player, NumberLine numberLine,
+                                     int depth) {
+        int split = Math.min(Math.min(SPLIT_FACTOR * _threads - 1, depth - 1),
+                             numberLine.size() - 1); //The number of moves made before splitting.
+        PlayerName mover = split % 2 == 0 ? player : player.opponent();
+        FrontierTask[] tasks = new FrontierTask[split + 1];
+        for (int lefts = 0; lefts <= split; lefts++) {
+            tasks[lefts] = new FrontierTask(numberLine, mover, lefts, split - lefts,
+                                            depth - split);
+            _pool.execute(tasks[lefts]);
+        }
+        int[] values = new int[split + 1]; //values[L] is the value of the interval left after L left and M - L right grabs in M moves.
+        for (int lefts = 0; lefts <= split; lefts++) {
+            values[lefts] = tasks[lefts].join();
+        }
+        if (_aborted) {
             return 0;
         }
-        int basic = findBestMoveBasic(player, numberLine);
-        if (basic != 2) {
-            return basic;
+        int bestMove = 0, last = numberLine.size() - 1;
+        for (int moves = split - 1; moves >= 0; moves--) {
+            for (int lefts = 0; lefts <= moves; lefts++) {
+                int takeLeft = numberLine.get(lefts) - values[lefts + 1];
+                int takeRight = numberLine.get(last - (moves - lefts)) - values[lefts];
+                values[lefts] = Math.max(takeLeft, takeRight);
+                bestMove = takeLeft >= takeRight ? 0 : 1;
+            }
         }
-        if (depth == 1) { //If player can only move once and cannot look ahead, just pick the biggest.
-            if (numberLine.get(0) > numberLine.get(numberLine.size() - 1)) {
+        Reporter.debug(2, "HardMoveFinder: value %d at depth %d with %d threads",
+                       values[0], depth, _threads);
+        _table.store(TranspositionTable.key(numberLine, player), values[0], depth,
+                     TranspositionTable.EXACT, bestMove);
+        return bestMove;
+    }
+    
+    /** Returns the move for PLAYER on NUMBERLINE that should be searched
+     *  first. This is the move that results in a difference of at least 4
+     *  between the number grabbed and the largest number then available to
+     *  the opponent if there is one, and otherwise the move that grabs the
+     *  larger number. NUMBERLINE must have at least two numbers. */
+    private int orderMoves(PlayerName player, NumberLine numberLine) {
+        int last = numberLine.size() - 1;
+        int left = numberLine.get(0), right = numberLine.get(last);
+        int dif0 = left - Math.max(numberLine.get(1), right);
+        int dif1 = right - Math.max(left, numberLine.get(last - 1));
+        if (Math.max(dif0, dif1) >= 4) {
+            return dif0 >= dif1 ? 0 : 1;
+        }
+        return left >= right ? 0 : 1;
+    }
+    
+    /** A single-threaded search. Each thread searching for this engine
+     *  uses its own Search. */
+    private class Search {
+        
+        /** Returns the value of NUMBERLINE for PLAYER, searching DEPTH moves
+         *  ahead. If the value is at most ALPHA or at least BETA, only returns
+         *  some value at most ALPHA or at least BETA, respectively. NUMBERLINE
+         *  is left as it was found. */
+        int negamax(PlayerName player, NumberLine numberLine, int depth,
+                    int alpha, int beta) {
+            int size = numberLine.size();
+            if (size == 0) {
                 return 0;
+            } else if (size == 1) {
+                return numberLine.get(0);
+            } else if (depth == 0) {
+                return numberLine.hasParitySums() ? ParityMoveFinder.bound(numberLine) : 0; //Estimate the numbers past the horizon by the parity strategy.
+            }
+            depth = Math.min(depth, size); //Searching past the end of the line changes nothing.
+            if ((++_nodes & CLOCK_CHECK_INTERVAL) == 0
+                && (_stopped || System.nanoTime() >= _deadline)) {
+                _aborted = true;
+                return 0;
+            }
+            Reporter.debug(3, "HardMoveFinder#negamax called with depth %d", depth);
+            long key = TranspositionTable.key(numberLine, player);
+            long entry = probe(key);
+            int first;
+            if (entry != TranspositionTable.MISS) {
+                first = TranspositionTable.move(entry);
+                if (TranspositionTable.depth(entry) >= depth) {
+                    int val = TranspositionTable.value(entry);
+                    switch (TranspositionTable.bound(entry)) {
+                    case TranspositionTable.EXACT:
+                        return val;
+                    case TranspositionTable.LOWER:
+                        alpha = Math.max(alpha, val);
+                        break;
+                    default:
+                        beta = Math.min(beta, val);
+                        break;
+                    }
+                    if (alpha >= beta) {
+                        _cutoffs += 1;
+                        return val;
+                    }
+                }
             } else {
-                return 1;
+                first = orderMoves(player, numberLine);
+            }
+            if (numberLine.hasPrefixSums() && numberLine.remainingTotal() <= alpha) {
+                _cutoffs += 1;
+                return numberLine.remainingTotal(); //The mover can't win by more than is left.
             }
+            if (depth == size && numberLine.hasParitySums()) { //The parity strategy bounds the exact value.
+                int parity = ParityMoveFinder.bound(numberLine);
+                if (size % 2 == 0 ? parity >= beta : parity <= alpha) {
+                    _cutoffs += 1;
+                    return parity;
+                }
+            }
+            int best = -INFINITY, bestMove = first, bound = TranspositionTable.UPPER;
+            for (int i = 0; i < 2; i++) {
+                int side = i == 0 ? first : 1 - first;
+                int num = numberLine.grab(player, side);
+                int val = num - negamax(player.opponent(), numberLine, depth - 1,
+                                        num - beta, num - Math.max(alpha, best)); //The opponent's value is subtracted from the number grabbed.
+                numberLine.ungrab(player, side);
+                if (_aborted) {
+                    return 0; //Values from an unfinished search are not stored.
+                }
+                if (val > best) {
+                    best = val;
+                    bestMove = side;
+                    if (best >= beta) {
+                        bound = TranspositionTable.LOWER; //Cutoff: the opponent won't allow this position.
+                        _cutoffs += 1;
+                        break;
+                    } else if (best > alpha) {
+                        bound = TranspositionTable.EXACT;
+                    }
+                }
+            }
+            _table.store(key, best, depth, bound, bestMove);
+            return best;
         }
-        Reporter.debug(3, "HardMoveFinder#findBestMove called with depth %d", depth);
-        int val0, val1;
-        NumberLine line0 = numberLine.copy(), line1 = numberLine.copy(); //Create copies of the number line so that the original isn't altered. 
-        line0.grab(player.name(), 0); line1.grab(player.name(), 1); //Make the two possible moves on the copies.
-        val0 = -findBestMoveHelper(getGame().opponent(player), line0, depth - 1); //The value of the line is given by negative of the best my opponent can do within depth after this move is made.
-        val1 = -findBestMoveHelper(getGame().opponent(player), line1, depth - 1); //See findBestMoveHelper for clarification on "value".
-        Reporter.debug(2, "val0: %d  val1: %d", val0, val1);
-        if (val0 > val1) {
-            return 0; //Pulling the left resulted in a better outcome, this is the best move. 
-        } else {
-            return 1; // Vice versa
+        
+        /** Returns the table entry for KEY, as for TranspositionTable.probe,
+         *  counting the probe. */
+        long probe(long key) {
+            long entry = _table.probe(key);
+            _probes += 1;
+            if (entry != TranspositionTable.MISS) {
+                _hits += 1;
+            }
+            return entry;
         }
+        
+        /** Adds this Search's counts to the engine's statistics, and starts
+         *  counting again from zero. */
+        void flushStats() {
+            getStats().addSearch(_nodes, _cutoffs, _probes, _hits);
+            _nodes = _cutoffs = _probes = _hits = 0;
+        }
+        
+        /** The number of positions searched by this Search, and of cutoffs,
+         *  table probes and table hits in them. */
+        private long _nodes, _cutoffs, _probes, _hits;
     }
     
-    /** The first step of findBestMove. Chooses the move that results in a difference 
-     * of at least 4 between the number grabbed from this move and the largest remaining 
-     * integer available to grab in the line afterwards. Returns 2 if no such 
-     * move is found. Considers a move for PLAYER on NUMBERLINE. */
-    private int findBestMoveBasic(Player player, NumberLine numberLine) {
-        NumberLine line0 = numberLine.copy(), line1 = numberLine.copy();
-        int grab0, grab1, max0, max1, dif0, dif1, bestMove = 0;
-        grab0 = line0.grab(player.name(), 0); grab1 = line1.grab(player.name(), 1);
-        max0 = Math.max(line0.get(0), line0.get(line0.size() - 1));
-        max1 = Math.max(line1.get(0), line1.get(line1.size() - 1));
-        dif0 = grab0 - max0; dif1 = grab1 - max1;
-        int bestDif = dif0;
-        if (dif1 > dif0) {
-            bestMove = 1;
-            bestDif = dif1;
+    /** A task that searches the interval left on a line after some moves
+     *  have been made. */
+    @SuppressWarnings("serial") //Tasks are never serialized.
+    private class FrontierTask extends RecursiveTask<Integer> {
+        
+        /** A task searching NUMBERLINE to DEPTH after LEFTS grabs from the
+         *  left and RIGHTS grabs from the right, with PLAYER to move. */
+        FrontierTask(NumberLine numberLine, PlayerName player, int lefts,
+                     int rights, int depth) {
+            _numberLine = numberLine;
+            _player = player;
+            _lefts = lefts;
+            _rights = rights;
+            _depth = depth;
         }
-        if (bestDif >= 4) {
-            return bestMove;
-        } else {
-            return 2;
+        
+        @Override
+        protected Integer compute() {
+            NumberLine numberLine = _numberLine.copy(); //Each task needs a line of its own.
+            for (int i = 0; i < _lefts; i++) {
+                numberLine.grab(_player, 0);
+            }
+            for (int i = 0; i < _rights; i++) {
+                numberLine.grab(_player, 1);
+            }
+            Search search = new Search();
+            int value = search.negamax(_player, numberLine, _depth,
+                                       -INFINITY, INFINITY);
+            search.flushStats();
+            return value;
         }
+        
+        /** The line searched, before any grabs. */
+        private final NumberLine _numberLine;
+        
+        /** The player to move after the grabs. */
+        private final PlayerName _player;
+        
+        /** The grabs made before searching, and the depth searched to. */
+        private final int _lefts, _rights, _depth;
     }
     
-    /** Returns the largest difference in score obtainable by PLAYER
-     *  on the NUMBERLINE. Looks DEPTH steps ahead and assumes each player
-     *  makes the best possible move at each step. */ 
-     private int findBestMoveHelper(Player player, NumberLine numberLine, int depth) {
-         if (depth == 1) { //If the player can only move once, pick the biggest. 
-             if (numberLine.get(0) > numberLine.get(numberLine.size() - 1)) {
-                 numberLine.grab(player.name(), 0);
-             } else {
-                 numberLine.grab(player.name(), 1);
-             }
-             if (player.name() == P1) { //Then return the difference in scores. 
-                 return numberLine.getP1Total() - numberLine.getP2Total();
-             } else {
-                 return numberLine.getP2Total() - numberLine.getP1Total();
-             }
-         }
-         NumberLine copy = numberLine.copy();
-         while (depth > 0) { //Run a 'simulation' game where each player take turns making the best possible move
-             copy.grab(player.name(), findBestMove(player, numberLine, depth));
-             player = getGame().opponent(player);
-             depth -= 1;
-             Reporter.debug(4, "%s", copy);
-         }
-         if (player.name() == P1) { //Then return the difference in scores. 
-             return copy.getP1Total() - numberLine.getP2Total();
-         } else {
-             return copy.getP2Total() - numberLine.getP1Total();
-         }
-     }
+    /** The number of bits in the size of a table made by this class. */
+    static final int DEFAULT_TABLE_BITS = 20;
+    
+    /** The number of moves this engine looks ahead. */
+    static final int MAX_DEPTH = 24;
+    
+    /** A parallel search is split into about SPLIT_FACTOR tasks per
+     *  thread, so that threads that finish early can take more work. */
+    private static final int SPLIT_FACTOR = 2;
+    
+    /** One less than the number of positions searched between looks at
+     *  the clock. Must be one less than a power of two. */
+    private static final int CLOCK_CHECK_INTERVAL = 1023;
+    
+    /** A value larger than the value of any position. */
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+    
+    /** The table of positions searched by this engine. */
+    private final TranspositionTable _table;
+    
+    /** The number of threads this engine searches with, and the pool of
+     *  those threads if there is more than one. */
+    private final int _threads;
+    private final ForkJoinPool _pool;
+    
+    /** The pools of each number of threads, shared by every engine in the
+     *  process, so that engines made for new games don't leave pools of
+     *  idle threads behind. Their workers are daemon threads. */
+    private static final ConcurrentHashMap<Integer, ForkJoinPool> POOLS =
+        new ConcurrentHashMap<>();
+    
+    /** The counts of this engine's searching. */
+    private final SearchStats _stats = new SearchStats();
+    
+    /** The search used on the calling thread. */
+    private final Search _search = new Search();
+    
+    /** The time by which the current search must finish. */
+    private long _deadline;
+    
+    /** True iff the current search ran out of time or was stopped.
+     *  Shared by every thread of a search. */
+    private volatile boolean _aborted;
+    
+    /** True iff searches have been told to stop. */
+    private volatile boolean _stopped;
+    
+    /** The depth of the deepest search completed by the last getMove. */
+    private int _lastDepth;
 }
@@ -0,0 +1,110 @@
+package core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/** A histogram of latencies in nanoseconds that many threads may record
+ *  into at once without locking. Latencies are counted in buckets whose
+ *  width is 1/16 of a power of two, so percentiles are accurate to
+ *  about 6%. The count, sum and largest latency, which every recording
+ *  updates, are striped across cells so that threads recording at once
+ *  don't contend for them. Recording never allocates once the cells a
+ *  thread uses exist. */
+public class LatencyHistogram {
+
+    /** Adds a latency of NANOS nanoseconds to this histogram. */
+    public void record(long nanos) {
+        nanos = Math.max(nanos, 0);
+        _counts.incrementAndGet(bucket(nanos));
+        _count.increment();
+        _total.add(nanos);
+        _max.accumulate(nanos);
+    }
+
+    /** Adds every latency recorded in OTHER to this histogram. */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            _counts.addAndGet(i, other._counts.get(i));
+        }
+        _count.add(other.count());
+        _total.add(other._total.sum());
+        _max.accumulate(other.max());
+    }
+
+    /** @return the number of latencies recorded. */
+    public long count() {
+        return _count.sum();
+    }
+
+    /** @return the largest latency recorded, or 0 if there is none. */
+    public long max() {
+        return _max.get();
+    }
+
+    /** @return the mean latency recorded, or 0 if there is none. */
+    public double mean() {
+        long count = count();
+        return count == 0 ? 0 : (double) _total.sum() / count;
+    }
+
+    /** @return an upper bound of the latency that FRACTION of the recorded
+     *  latencies are at most, which is never above the largest latency. */
+    public long percentile(double fraction) {
+        long count = count();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(fraction * count), seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += _counts.get(i);
+            if (seen >= Math.max(rank, 1)) {
+                return Math.min(upperBound(i), max());
+            }
+        }
+        return max();
+    }
+
+    /** @return p50, p99 and max, in microseconds, as text. */
+    @Override
+    public String toString() {
+        return String.format("p50 %.1fus  p99 %.1fus  max %.1fus",
+                             percentile(0.5) / 1e3, percentile(0.99) / 1e3,
+                             max() / 1e3);
+    }
+
+    /** @return the bucket of latency NANOS. */
+    private static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos; //Small latencies get a bucket each.
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return ((exponent - SUB_BITS + 1) << SUB_BITS) | sub;
+    }
+
+    /** @return the largest latency in BUCKET. */
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket >>> SUB_BITS) + SUB_BITS - 1;
+        long sub = bucket & (SUB_BUCKETS - 1);
+        return ((SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+    }
+
+    /** The number of bits of a latency below its leading one that pick
+     *  its bucket, and the number of buckets per power of two. */
+    private static final int SUB_BITS = 4, SUB_BUCKETS = 1 << SUB_BITS;
+
+    /** The number of buckets. */
+    private static final int BUCKETS = (64 - SUB_BITS + 1) << SUB_BITS;
+
+    /** The number of latencies in each bucket. */
+    private final AtomicLongArray _counts = new AtomicLongArray(BUCKETS);
+
+    /** The number, sum and largest of the latencies recorded. */
+    private final LongAdder _count = new LongAdder(), _total = new LongAdder();
+    private final LongAccumulator _max = new LongAccumulator(Math::max, 0);
+
+}
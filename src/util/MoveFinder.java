@@ -17,6 +17,31 @@ public abstract class MoveFinder {
     /** Get a move from this MoveMaker based on the game's current state. */
     public abstract int getMove();
     
+    /** Get a move from this MoveMaker based on the game's current state,
+     *  returning by DEADLINE, as given by System.nanoTime(). Engines that
+     *  don't search ignore DEADLINE. */
+    public int getMove(long deadline) {
+        return getMove();
+    }
+    
+    /** Get the counts of the searching done by this MoveFinder, or null
+     *  if it doesn't search. */
+    public SearchStats getStats() {
+        return null;
+    }
+    
+    /** Get the histogram of the times this MoveFinder has taken to choose
+     *  moves for its player, or null if they aren't recorded. */
+    public LatencyHistogram getLatency() {
+        return _latency;
+    }
+    
+    /** Record the times this MoveFinder takes to choose moves in LATENCY,
+     *  or nowhere if it is null. */
+    public void setLatency(LatencyHistogram latency) {
+        _latency = latency;
+    }
+    
     /** Get this MoveFinder's player. */
     public Player getPlayer() {
         return _player;
@@ -27,10 +52,17 @@ public abstract class MoveFinder {
         return _game;
     }
     
+    /** The deadline of a move that can take as long as it likes. */
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+    
     /** The player that uses this move maker. */
     private final Player _player;
     
     /** The game that this MoveMaker's player plays on. */
     private final Game _game;
+    
+    /** The histogram of the times this MoveFinder takes to choose moves,
+     *  or null. */
+    private LatencyHistogram _latency;
 
 }
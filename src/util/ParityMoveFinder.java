@@ -0,0 +1,59 @@
+package core;
+
+/** A move finding engine that plays the parity strategy, without searching.
+ *  With an even number of numbers left, the ends of the line are at
+ *  indices of different parities, and whichever end is grabbed, the
+ *  opponent must leave an end of the same parity as that end. So the mover
+ *  can take every number at indices of one parity, and takes the parity
+ *  with the larger sum, never losing to anyone from such a position. With
+ *  an odd number left, it grabs the end that leaves the opponent the
+ *  smallest such advantage. Each move takes O(1) time. */
+public class ParityMoveFinder extends MoveFinder {
+
+    /** A new ParityMoveFinder which finds moves for a PLAYER of
+     *  a GAME of Number Grab. */
+    public ParityMoveFinder (Player player, Game game) {
+        super(player, game);
+    }
+
+    @Override
+    public int getMove() {
+        return move(getGame().getNumberLine());
+    }
+
+    /** Returns the parity strategy's move on NUMBERLINE, which must not be
+     *  empty. */
+    static int move(NumberLine numberLine) {
+        int size = numberLine.size();
+        if (size % 2 == 0) {
+            return numberLine.paritySum(0) >= numberLine.paritySum(size - 1) ? 0 : 1;
+        }
+        return afterGrab(numberLine, 0) >= afterGrab(numberLine, 1) ? 0 : 1;
+    }
+
+    /** Returns the parity strategy's estimate of the value of NUMBERLINE
+     *  for the player to move, which must not be empty. With an even number
+     *  of numbers left, this is a lower bound of the value; with an odd
+     *  number, an upper bound. */
+    static int bound(NumberLine numberLine) {
+        if (numberLine.size() % 2 == 0) {
+            return Math.abs(numberLine.paritySum(0) - numberLine.paritySum(1));
+        }
+        return Math.max(afterGrab(numberLine, 0), afterGrab(numberLine, 1));
+    }
+
+    /** Returns the number at the end SIDE of NUMBERLINE, which has an odd
+     *  number of numbers, less the margin the opponent can then be sure of
+     *  by the parity strategy. This is as much as the mover can hope for
+     *  after grabbing from SIDE. */
+    private static int afterGrab(NumberLine numberLine, int side) {
+        int size = numberLine.size();
+        if (size == 1) {
+            return numberLine.get(0);
+        }
+        int num = numberLine.get(side == 0 ? 0 : size - 1);
+        int ends = numberLine.paritySum(0) - num; //Both ends have the same parity.
+        return num - Math.abs(ends - numberLine.paritySum(1));
+    }
+
+}
@@ -0,0 +1,27 @@
+package core;
+
+/** A move finding engine that plays perfectly. The game's line is solved
+ *  exactly once, see {@link Solution}, and every move is then looked up in
+ *  the solution. Lines too long for a Solution are evaluated afresh for
+ *  every move instead, see {@link Evaluation}. In games with passing, the
+ *  line is solved for passing, and the engine passes when every grab would
+ *  lose ground. */
+public class PerfectMoveFinder extends MoveFinder {
+
+    /** A new PerfectMoveFinder which finds moves for a PLAYER of
+     *  a GAME of Number Grab. */
+    public PerfectMoveFinder (Player player, Game game) {
+        super(player, game);
+    }
+
+    @Override
+    public int getMove() {
+        NumberLine numberLine = getGame().getNumberLine();
+        if (!Solution.fits(getGame().getLength())) {
+            return Evaluation.of(numberLine.getNumbers(), getGame().getPassing()).bestMove();
+        }
+        return getGame().getSolution().bestMove(numberLine.leftIndex(),
+                                                numberLine.rightIndex());
+    }
+
+}
@@ -1,7 +1,20 @@
 package core;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
 /** Utility for reporting informational or debugging messages conditionally,
  *  based on an adjustable parameter.
+ *
+ *  A disabled message costs only a comparison: the overloads taking int
+ *  arguments neither box them nor allocate an argument array, and the
+ *  Supplier overload builds its message only when it will be printed.
+ *  Messages may also be handed to a background thread that formats and
+ *  prints them (see setAsync), so that tracing a search does not slow it
+ *  to the speed of the terminal.
  *  @author P. N. Hilfinger
  */
 public class Reporter {
@@ -18,17 +31,219 @@ public class Reporter {
         return _messageLevel;
     }
 
+    /** Returns true iff messages of level LEVEL are printed. */
+    public static boolean isEnabled(int level) {
+        return level > 0 && level <= _messageLevel;
+    }
+
+    /** If ASYNC, print messages from now on on a background thread, which
+     *  drops them rather than make the thread reporting them wait when it
+     *  falls too far behind. Otherwise, print them as they are reported,
+     *  once those already queued have been printed. The background thread
+     *  and the shutdown hook that flushes it are made the first time this
+     *  is turned on, and reused every time after that. */
+    public static synchronized void setAsync(boolean async) {
+        if (async) {
+            if (_background == null) {
+                Sink sink = new Sink(SINK_CAPACITY);
+                sink._consumer = new Thread(sink, "Reporter");
+                sink._consumer.setDaemon(true);
+                sink._consumer.start();
+                Runtime.getRuntime().addShutdownHook(new Thread(sink::flush));
+                _background = sink;
+            }
+            _sink = _background;
+            LockSupport.unpark(_background._consumer);
+        } else if (_sink != null) {
+            _sink = null;
+            _background.flush();
+        }
+    }
+
+    /** Wait until every message reported so far has been printed. */
+    public static void flush() {
+        Sink sink = _background;
+        if (sink != null) {
+            sink.flush();
+        }
+    }
+
     /** Print a message on the standard error if LEVEL is positive and <= the
      *  current message level. FORMAT and ARGS are as for the .printf
      *  methods. */
     public static void debug(int level, String format, Object... args) {
-        if (level > 0 && level <= _messageLevel) {
-            System.err.printf(format, args);
-            System.err.println();
+        if (isEnabled(level)) {
+            report(format, args);
+        }
+    }
+
+    /** As for debug(LEVEL, FORMAT, ARG), without boxing ARG unless the
+     *  message is printed. */
+    public static void debug(int level, String format, int arg) {
+        if (isEnabled(level)) {
+            report(format, new Object[] { arg });
+        }
+    }
+
+    /** As for debug(LEVEL, FORMAT, ARG0, ARG1), without boxing ARG0 and
+     *  ARG1 unless the message is printed. */
+    public static void debug(int level, String format, int arg0, int arg1) {
+        if (isEnabled(level)) {
+            report(format, new Object[] { arg0, arg1 });
+        }
+    }
+
+    /** As for debug(LEVEL, FORMAT, ARG0, ARG1, ARG2), without boxing the
+     *  arguments unless the message is printed. */
+    public static void debug(int level, String format, int arg0, int arg1, int arg2) {
+        if (isEnabled(level)) {
+            report(format, new Object[] { arg0, arg1, arg2 });
+        }
+    }
+
+    /** As for debug(LEVEL, FORMAT, ARG0, ARG1), without boxing ARG1 unless
+     *  the message is printed. */
+    public static void debug(int level, String format, Object arg0, int arg1) {
+        if (isEnabled(level)) {
+            report(format, new Object[] { arg0, arg1 });
+        }
+    }
+
+    /** Print the message supplied by MESSAGE on the standard error if LEVEL
+     *  is positive and <= the current message level. MESSAGE is only called
+     *  in that case, on the reporting thread. */
+    public static void debug(int level, Supplier<String> message) {
+        if (isEnabled(level)) {
+            report("%s", new Object[] { message.get() });
+        }
+    }
+
+    /** Print FORMAT formatted with ARGS, now or on the background thread. */
+    private static void report(String format, Object[] args) {
+        Sink sink = _sink;
+        if (sink == null) {
+            print(format, args);
+        } else {
+            sink.offer(format, args);
         }
     }
 
+    /** Print FORMAT formatted with ARGS and a newline on the standard
+     *  error. */
+    private static void print(String format, Object[] args) {
+        System.err.printf(format, args);
+        System.err.println();
+    }
+
+    /** A bounded ring of messages waiting to be printed, filled by any
+     *  number of reporting threads and emptied by one consumer thread.
+     *  A reporter claims a slot by advancing _tail, and fills it; the
+     *  consumer prints slots in order, clearing each and advancing _head.
+     *  A reporter that finds the ring full drops its message. While the
+     *  ring isn't in use the consumer sleeps until it is unparked. */
+    private static class Sink implements Runnable {
+
+        /** A Sink holding up to CAPACITY messages, a power of 2. */
+        Sink(int capacity) {
+            _formats = new AtomicReferenceArray<>(capacity);
+            _args = new Object[capacity][];
+            _mask = capacity - 1;
+        }
+
+        /** Queue FORMAT and ARGS for printing, unless the ring is full. */
+        void offer(String format, Object[] args) {
+            long tail;
+            do {
+                tail = _tail.get();
+                if (tail - _head >= _args.length) {
+                    _dropped.increment();
+                    return;
+                }
+            } while (!_tail.compareAndSet(tail, tail + 1));
+            int slot = (int) tail & _mask;
+            _args[slot] = args;
+            _formats.set(slot, format); //Publishes _args[slot] to the consumer.
+        }
+
+        /** Wait until the consumer has printed every message claimed so
+         *  far. */
+        void flush() {
+            long tail = _tail.get();
+            while (_head < tail) {
+                LockSupport.unpark(_consumer); //In case it went to sleep as a message was being queued.
+                LockSupport.parkNanos(IDLE_NANOS);
+            }
+            reportDropped();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                int slot = (int) _head & _mask;
+                String format = _formats.get(slot);
+                if (format == null) {
+                    reportDropped();
+                    if (_sink == this) {
+                        LockSupport.parkNanos(IDLE_NANOS);
+                    } else {
+                        LockSupport.park(this);
+                    }
+                    continue;
+                }
+                Object[] args = _args[slot];
+                _args[slot] = null;
+                _formats.lazySet(slot, null);
+                print(format, args);
+                _head += 1;
+            }
+        }
+
+        /** Note any messages dropped since the last note. */
+        private void reportDropped() {
+            long dropped = _dropped.sumThenReset();
+            if (dropped > 0) {
+                print("Reporter: dropped %d messages", new Object[] { dropped });
+            }
+        }
+
+        /** The formats of the queued messages; null in empty slots. */
+        private final AtomicReferenceArray<String> _formats;
+
+        /** The arguments of the queued messages. */
+        private final Object[][] _args;
+
+        /** The mask taking a sequence number to its slot. */
+        private final int _mask;
+
+        /** The sequence number of the next slot to be claimed. */
+        private final AtomicLong _tail = new AtomicLong();
+
+        /** The sequence number of the next slot to be printed. Only the
+         *  consumer writes it. */
+        private volatile long _head;
+
+        /** The number of messages dropped since the last note. */
+        private final LongAdder _dropped = new LongAdder();
+
+        /** The thread that prints the queued messages. */
+        private Thread _consumer;
+
+    }
+
+    /** The number of messages the background thread can fall behind by. */
+    private static final int SINK_CAPACITY = 1 << 16;
+
+    /** Nanoseconds to wait when there is nothing to print yet. */
+    private static final long IDLE_NANOS = 100_000;
+
     /** The current package-wide message level. */
     private static int _messageLevel = 0;
 
+    /** The background printer in use, or null if messages are printed as
+     *  they are reported. */
+    private static volatile Sink _sink;
+
+    /** The background printer, made the first time it is used, or null. */
+    private static volatile Sink _background;
+
 }
@@ -0,0 +1,93 @@
+package core;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Counts of the work done by a searching MoveFinder: positions searched,
+ *  cutoffs, transposition table probes and hits, time spent searching,
+ *  and the depth reached on each move. Each searching thread keeps its own
+ *  counts and adds them here when its search ends, so counting costs a
+ *  search nothing but a few increments of its own fields. */
+public class SearchStats {
+
+    /** Adds the counts of one thread's search: NODES positions searched,
+     *  CUTOFFS cutoffs, PROBES table probes of which HITS found an entry.
+     *  May be called from any thread. */
+    void addSearch(long nodes, long cutoffs, long probes, long hits) {
+        _nodes.add(nodes);
+        _cutoffs.add(cutoffs);
+        _probes.add(probes);
+        _hits.add(hits);
+    }
+
+    /** Adds NANOS nanoseconds to the time spent searching. */
+    void addTime(long nanos) {
+        _nanos.add(nanos);
+    }
+
+    /** Records a move chosen after searching DEPTH moves ahead. */
+    synchronized void endMove(int depth) {
+        _moves += 1;
+        _depths += depth;
+        _maxDepth = Math.max(_maxDepth, depth);
+        _lastDepth = depth;
+    }
+
+    /** @return the number of moves recorded. */
+    public synchronized long moves() {
+        return _moves;
+    }
+
+    /** @return the number of positions searched. */
+    public long nodes() {
+        return _nodes.sum();
+    }
+
+    /** @return the number of positions searched per second of searching. */
+    public double nodesPerSecond() {
+        long nanos = _nanos.sum();
+        return nanos == 0 ? 0 : nodes() * 1e9 / nanos;
+    }
+
+    /** @return the number of cutoffs. */
+    public long cutoffs() {
+        return _cutoffs.sum();
+    }
+
+    /** @return the fraction of table probes that found an entry. */
+    public double hitRate() {
+        long probes = _probes.sum();
+        return probes == 0 ? 0 : (double) _hits.sum() / probes;
+    }
+
+    /** @return the mean depth searched per move. */
+    public synchronized double meanDepth() {
+        return _moves == 0 ? 0 : (double) _depths / _moves;
+    }
+
+    /** @return the deepest search of any move. */
+    public synchronized int maxDepth() {
+        return _maxDepth;
+    }
+
+    /** @return the depth searched for the last move. */
+    public synchronized int lastDepth() {
+        return _lastDepth;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d moves  %d nodes  %.0f nodes/s  depth %.1f"
+                             + " (last %d, max %d)  %d cutoffs  %.1f%% table hits",
+                             moves(), nodes(), nodesPerSecond(), meanDepth(),
+                             lastDepth(), maxDepth(), cutoffs(), 100 * hitRate());
+    }
+
+    /** Counts added by searching threads. */
+    private final LongAdder _nodes = new LongAdder(), _cutoffs = new LongAdder(),
+        _probes = new LongAdder(), _hits = new LongAdder(), _nanos = new LongAdder();
+
+    /** Counts of the moves recorded. */
+    private long _moves, _depths;
+    private int _maxDepth, _lastDepth;
+
+}
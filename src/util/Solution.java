@@ -0,0 +1,130 @@
+package core;
+
+import java.nio.IntBuffer;
+
+/** The exact solution of a line of numbers: the value of every interval
+ *  of the line, found with an interval dynamic program over (left, right)
+ *  indices. The value of an interval is the largest (most positive)
+ *  difference between the mover's and the opponent's gains on that
+ *  interval, assuming that every player makes the best possible move at
+ *  every step. Solving a line of N numbers takes O(N^2) time and space.
+ *  <p>
+ *  A line may also be solved for games with passing, where two passes in a
+ *  row end the game. Passing leaves the interval as it was, so the state of
+ *  a game is its interval and whether the last move was a pass. After a
+ *  pass, the mover can grab, or pass and end the game with a difference
+ *  of 0 on the interval. Otherwise the mover can grab, or pass to the
+ *  opponent, who is then in that same position. Both come to the same
+ *  value: the larger of 0 and the value of the best grab, so the table
+ *  needs no pass state and the cycles passing makes need no search. */
+public class Solution {
+
+    /** A solution of NUMBERS whose interval values are in TABLE, as laid
+     *  out by index. */
+    Solution(int[] numbers, IntBuffer table) {
+        this(numbers, table, false);
+    }
+
+    /** A solution of NUMBERS whose interval values are in TABLE, as laid
+     *  out by index, for a game with passing iff PASSING. */
+    Solution(int[] numbers, IntBuffer table, boolean passing) {
+        _numbers = numbers;
+        _table = table;
+        _passing = passing;
+    }
+
+    /** @return the solution of NUMBERS. */
+    public static Solution solve(int[] numbers) {
+        return solve(numbers, false);
+    }
+
+    /** @return the solution of NUMBERS for a game with passing iff
+     *  PASSING. */
+    public static Solution solve(int[] numbers, boolean passing) {
+        int n = numbers.length;
+        if (!fits(n)) {
+            throw new IllegalArgumentException("line too long to solve: " + n);
+        }
+        int[] table = new int[(int) tableSize(n)];
+        int floor = passing ? 0 : Integer.MIN_VALUE; //A player who can pass never does worse than 0.
+        for (int right = 0; right < n; right++) {
+            int row = index(0, right), prevRow = index(0, right - 1);
+            table[row + right] = Math.max(numbers[right], floor);
+            for (int left = right - 1; left >= 0; left--) {
+                int takeLeft = numbers[left] - table[row + left + 1]; //Value of [left + 1, right] is in this row.
+                int takeRight = numbers[right] - table[prevRow + left]; //Value of [left, right - 1] is in the previous row.
+                table[row + left] = Math.max(Math.max(takeLeft, takeRight), floor);
+            }
+        }
+        return new Solution(numbers, IntBuffer.wrap(table), passing);
+    }
+
+    /** @return the value of the interval [LEFT, RIGHT]. */
+    public int value(int left, int right) {
+        if (left > right) {
+            return 0;
+        }
+        return _table.get(index(left, right));
+    }
+
+    /** @return the best move on the interval [LEFT, RIGHT]: 0 to grab
+     *  from the left, 1 from the right, or 2 to pass, if this is a solution
+     *  for passing and every grab loses ground. */
+    public int bestMove(int left, int right) {
+        int takeLeft = _numbers[left] - value(left + 1, right);
+        int takeRight = left == right ? takeLeft : _numbers[right] - value(left, right - 1);
+        Reporter.debug(2, "Solution: left %d  right %d", takeLeft, takeRight);
+        if (_passing && Math.max(takeLeft, takeRight) < 0) {
+            return 2;
+        } else if (takeLeft >= takeRight) {
+            return 0;
+        } else {
+            return 1;
+        }
+    }
+
+    /** @return true iff this is a solution for a game with passing. */
+    public boolean passing() {
+        return _passing;
+    }
+
+    /** @return the numbers this is the solution of. */
+    public int[] numbers() {
+        return _numbers;
+    }
+
+    /** @return the table of interval values. */
+    IntBuffer table() {
+        return _table;
+    }
+
+    /** @return true iff the table of a line of N numbers is small enough
+     *  to be made. Longer lines are evaluated with Evaluation instead. */
+    static boolean fits(int n) {
+        return tableSize(n) <= MAX_TABLE_CELLS;
+    }
+
+    /** @return the number of values in the table of a line of N numbers. */
+    static long tableSize(int n) {
+        return n * (n + 1L) / 2;
+    }
+
+    /** Returns the index of the interval [LEFT, RIGHT] in a value table.
+     *  Intervals with the same right end are stored contiguously. */
+    static int index(int left, int right) {
+        return (int) (right * (right + 1L) / 2) + left;
+    }
+
+    /** The largest table made, in values: half a gigabyte. */
+    static final long MAX_TABLE_CELLS = 1L << 27;
+
+    /** The numbers this is the solution of. */
+    private final int[] _numbers;
+
+    /** The value of every interval of _numbers. */
+    private final IntBuffer _table;
+
+    /** True iff this is a solution for a game with passing. */
+    private final boolean _passing;
+
+}
@@ -0,0 +1,155 @@
+package core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/** A cache of solved lines on disk, so that lines that are played again do
+ *  not have to be solved again. Each solution is kept in its own file,
+ *  named by a hash of the line's numbers, and is read back by mapping the
+ *  file into memory, so the table is never copied onto the heap. When the
+ *  files take more than a given number of bytes, the least recently used
+ *  ones are deleted. A file holds the int MAGIC, the number of numbers N,
+ *  the N numbers and then the table of the solution. */
+public class SolutionCache {
+
+    /** A cache keeping its files in DIRECTORY, taking at most MAXBYTES. */
+    public SolutionCache(File directory, long maxBytes) {
+        _directory = directory;
+        _maxBytes = maxBytes;
+        directory.mkdirs();
+    }
+
+    /** @return the cached solution of NUMBERS, or null if there is none. */
+    public Solution load(int[] numbers) {
+        File file = file(numbers);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                                                  0, channel.size()); //The mapping stays valid after the channel is closed.
+            IntBuffer ints = buffer.asIntBuffer();
+            int n = numbers.length;
+            if (ints.limit() != HEADER + n + Solution.tableSize(n)
+                || ints.get(0) != MAGIC || ints.get(1) != n) {
+                Reporter.debug(1, "SolutionCache: %s is not a solution", file);
+                return null;
+            }
+            for (int i = 0; i < n; i++) {
+                if (ints.get(HEADER + i) != numbers[i]) {
+                    return null; //A different line with the same hash.
+                }
+            }
+            ints.position(HEADER + n);
+            file.setLastModified(System.currentTimeMillis()); //Mark as recently used.
+            Reporter.debug(1, "SolutionCache: loaded %s", file);
+            return new Solution(numbers, ints.slice());
+        } catch (IOException e) {
+            Reporter.debug(1, "SolutionCache: could not read %s: %s", file, e);
+            return null;
+        }
+    }
+
+    /** Writes SOLUTION to this cache, then deletes the least recently used
+     *  files until the cache is small enough. */
+    public void store(Solution solution) {
+        int[] numbers = solution.numbers();
+        int n = numbers.length;
+        long bytes = 4 * (HEADER + n + Solution.tableSize(n));
+        if (bytes > _maxBytes || bytes > Integer.MAX_VALUE) {
+            return;
+        }
+        File file = file(numbers), temp = null;
+        try {
+            temp = File.createTempFile("solution", ".tmp", _directory);
+            try (RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+                 FileChannel channel = raf.getChannel()) {
+                IntBuffer ints = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes)
+                    .asIntBuffer();
+                ints.put(MAGIC).put(n).put(numbers);
+                IntBuffer table = solution.table().duplicate();
+                table.rewind();
+                ints.put(table);
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE); //Readers never see a partly written file.
+            Reporter.debug(1, "SolutionCache: stored %s", file);
+        } catch (IOException e) {
+            Reporter.debug(1, "SolutionCache: could not write %s: %s", file, e);
+            if (temp != null && !temp.delete()) { //Evict never sees temporary files, so they mustn't be left behind.
+                Reporter.debug(1, "SolutionCache: could not delete %s", temp);
+            }
+            return;
+        }
+        evict();
+    }
+
+    /** Deletes the least recently used files until the cache takes at most
+     *  its maximum number of bytes. */
+    private void evict() {
+        File[] files = _directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        for (File f : files) {
+            total += f.length();
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < files.length && total > _maxBytes; i++) {
+            total -= files[i].length();
+            Reporter.debug(1, "SolutionCache: evicting %s", files[i]);
+            files[i].delete();
+        }
+    }
+
+    /** @return the file the solution of NUMBERS is kept in. */
+    private File file(int[] numbers) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer bytes = ByteBuffer.allocate(4 * numbers.length);
+            bytes.asIntBuffer().put(numbers);
+            StringBuilder name = new StringBuilder();
+            for (byte b : digest.digest(bytes.array())) {
+                name.append(String.format("%02x", b));
+            }
+            return new File(_directory, name.append(SUFFIX).toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); //Every Java platform has SHA-256.
+        }
+    }
+
+    /** The default maximum number of bytes of a cache. */
+    public static final long DEFAULT_MAX_BYTES = 256L << 20;
+
+    /** Marks a solution file. */
+    private static final int MAGIC = 0x4e475343;
+
+    /** The number of ints before a file's numbers. */
+    private static final int HEADER = 2;
+
+    /** The suffix of the names of solution files. */
+    private static final String SUFFIX = ".sol";
+
+    /** The directory the cache's files are kept in. */
+    private final File _directory;
+
+    /** The most bytes the cache's files may take. */
+    private final long _maxBytes;
+
+}
@@ -1,17 +1,19 @@
 package core;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
 
 /**
- *  A simple timer class based on elapsed wall-clock time.  May be
- *  stopped and started under program control, and provides both
- *  accumulated time and time since last started in units of msec.
+ *  A simple timer class based on elapsed time, as measured by
+ *  System.nanoTime ().  May be stopped and started under program
+ *  control, and provides both accumulated time and time since last
+ *  started, in units of msec or nsec.
  *  At any given point, a given timer has some number of properly 
  *  nested <dfn>subtimers</dfn> running.  While one subtimer is
  *  running, you can start and stop another, allowing you to time
  *  parts of some larger activity while still computing the time
- *  for the entire activity. 
+ *  for the entire activity.  Starting and stopping subtimers does
+ *  not allocate once the deepest nesting has been reached.
  */
 public class Stopwatch {
 
@@ -22,18 +24,21 @@ public class Stopwatch {
 
   /** True iff there are subtimers of THIS running. */
   public boolean isRunning () {
-    return ! startingTimes.isEmpty ();
+    return running > 0;
     
   }
 
   /** The number of nested subtimers currently running. */
   public int getRunning () {
-    return startingTimes.size ();
+    return running;
   }
 
   /** Start a new subtimer at the current time. */
   public void start() {
-    startingTimes.add (System.currentTimeMillis ());
+    if (running == startingTimes.length)
+      startingTimes = Arrays.copyOf (startingTimes, 2 * running);
+    startingTimes[running] = System.nanoTime ();
+    running += 1;
   }
 
   /** 
@@ -42,12 +47,17 @@ public class Stopwatch {
    *  IllegalStateException if !isRunning ().
    */
   public long stop() {
-    int count = getRunning ();
-    if (count == 0)
+    return stopNanos () / NANOS_PER_MILLI;
+  }
+
+  /** As for stop (), but returns the elapsed time in nanoseconds. */
+  public long stopNanos() {
+    if (running == 0)
       throw new IllegalStateException ("no subtimer running");
-    long finish = System.currentTimeMillis();
-    long diff = finish - startingTimes.remove (count - 1);
-    if (count == 1) 
+    long finish = System.nanoTime ();
+    running -= 1;
+    long diff = finish - startingTimes[running];
+    if (running == 0) 
       accum += diff;
     return diff;
   }
@@ -55,9 +65,13 @@ public class Stopwatch {
   /** The time in milliseconds since the latest, still-running 
    *  subtimer started.  Throws IllegalStateException if !isRunning (). */
   public long getElapsed() {
-    int N = getRunning ();
-    if (N > 0)
-      return System.currentTimeMillis() - startingTimes.get (N-1);
+    return getElapsedNanos () / NANOS_PER_MILLI;
+  }
+
+  /** As for getElapsed (), but in nanoseconds. */
+  public long getElapsedNanos() {
+    if (running > 0)
+      return System.nanoTime () - startingTimes[running - 1];
     else
       throw new IllegalStateException ("no subtimer is running");
   }
@@ -65,21 +79,32 @@ public class Stopwatch {
   /** The total time in milliseconds that isRunning () has been true 
    *  since THIS was created or reset. */
   public long getAccum () {
+    return getAccumNanos () / NANOS_PER_MILLI;
+  }
+
+  /** As for getAccum (), but in nanoseconds. */
+  public long getAccumNanos () {
     if (isRunning ())
-      return accum + System.currentTimeMillis() - startingTimes.get (0);
+      return accum + System.nanoTime () - startingTimes[0];
     else
       return accum;
   }
 
   /** Stop all subtimers, and set accumulated time to 0. */
   public void reset() {
-    startingTimes.clear ();
+    running = 0;
     accum = 0;
   }
 
-  /** Total accumulated time that isRunning () has been true since last
-   *  reset. */
+  /** The number of nanoseconds in a millisecond. */
+  private static final long NANOS_PER_MILLI = 1000000;
+
+  /** Total accumulated time in nanoseconds that isRunning () has been
+   *  true since last reset. */
   private long accum;
-  /** Stack of starting times of current subtimers, with latest last. */
-  private ArrayList<Long> startingTimes = new ArrayList<Long> ();
+  /** Starting times of current subtimers, with latest last, in
+   *  startingTimes[0 .. running-1]. */
+  private long[] startingTimes = new long[4];
+  /** The number of subtimers running. */
+  private int running;
 }
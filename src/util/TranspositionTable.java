@@ -0,0 +1,126 @@
+package core;
+
+import java.util.Arrays;
+
+/** A fixed-size table of previously searched Number Grab positions. A
+ *  position is the interval of the line that remains, given by the indices
+ *  of its ends in the line as first populated, together with the player
+ *  whose turn it is. Each entry records the value found for the position,
+ *  the depth it was searched to, whether the value is exact or a bound, and
+ *  the best move found. Entries are kept in two primitive long arrays, and
+ *  a new entry only replaces an entry for another position if it was
+ *  searched at least as deep. Several threads may share a table without
+ *  locking: each slot holds its key XORed with its entry, so a slot torn
+ *  by two threads writing at once reads as a miss. */
+public class TranspositionTable {
+
+    /** Bound types of an entry's value. */
+    public static final int EXACT = 0, LOWER = 1, UPPER = 2;
+
+    /** The entry returned by probe when a position is not in the table. */
+    public static final long MISS = 0;
+
+    /** A new empty table with 2^BITS entries. */
+    public TranspositionTable(int bits) {
+        if (bits < 1 || bits > 30) {
+            throw new IllegalArgumentException("bad table size: " + bits);
+        }
+        _shift = 64 - bits;
+        _keys = new long[1 << bits];
+        _entries = new long[1 << bits];
+    }
+
+    /** @return the number of bits in the size of a table that has room
+     *  for every position of a line of LENGTH numbers, up to a table with
+     *  2^HardMoveFinder.DEFAULT_TABLE_BITS entries. */
+    public static int bitsFor(int length) {
+        long positions = 2 * ((long) length * (length + 1) / 2); //Every interval, with either player to move.
+        int bits = 64 - Long.numberOfLeadingZeros(Math.max(positions, 2) - 1);
+        return Math.max(MIN_BITS, Math.min(bits, HardMoveFinder.DEFAULT_TABLE_BITS));
+    }
+
+    /** @return the key of the position where the numbers from index LEFT
+     *  to RIGHT remain and it is TURN's turn to move. */
+    public static long key(int left, int right, PlayerName turn) {
+        return ((long) left << 32) | ((long) right << 1)
+            | (turn == PlayerName.P1 ? 0 : 1);
+    }
+
+    /** @return the key of the position on NUMBERLINE where it is TURN's
+     *  turn to move. */
+    public static long key(NumberLine numberLine, PlayerName turn) {
+        return key(numberLine.leftIndex(), numberLine.rightIndex(), turn);
+    }
+
+    /** @return the entry stored for the position KEY, or MISS if there is
+     *  none. Decode the entry with value, depth, bound and move. */
+    public long probe(long key) {
+        int slot = slot(key);
+        long entry = _entries[slot];
+        if ((_keys[slot] ^ entry) == key) {
+            return entry;
+        }
+        return MISS;
+    }
+
+    /** Records that position KEY has VALUE, of type BOUND, when searched to
+     *  DEPTH, and that MOVE is its best move. Keeps the current entry instead
+     *  if it is for a different position and was searched deeper. */
+    public void store(long key, int value, int depth, int bound, int move) {
+        int slot = slot(key);
+        long old = _entries[slot];
+        if ((_keys[slot] ^ old) != key && old != MISS && depth(old) > depth) {
+            return;
+        }
+        long entry = ((long) value << 32) | ((long) Math.min(depth, DEPTH_MASK) << 4)
+            | (bound << 2) | (move << 1) | 1;
+        _keys[slot] = key ^ entry;
+        _entries[slot] = entry;
+    }
+
+    /** Removes every entry from this table. */
+    public void clear() {
+        Arrays.fill(_keys, 0);
+        Arrays.fill(_entries, MISS);
+    }
+
+    /** @return the value recorded in ENTRY. */
+    public static int value(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    /** @return the search depth recorded in ENTRY. */
+    public static int depth(long entry) {
+        return (int) (entry >>> 4) & DEPTH_MASK;
+    }
+
+    /** @return the bound type recorded in ENTRY. */
+    public static int bound(long entry) {
+        return (int) (entry >>> 2) & 3;
+    }
+
+    /** @return the best move recorded in ENTRY. */
+    public static int move(long entry) {
+        return (int) (entry >>> 1) & 1;
+    }
+
+    /** @return the slot of KEY in this table. */
+    private int slot(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> _shift); //Fibonacci hashing spreads neighbouring intervals apart.
+    }
+
+    /** The number of bits in the size of the smallest table made by
+     *  bitsFor. */
+    private static final int MIN_BITS = 8;
+
+    /** The largest depth an entry can record. */
+    private static final int DEPTH_MASK = 0xFFFFFFF;
+
+    /** The number of bits a key's hash is shifted by to find its slot. */
+    private final int _shift;
+
+    /** The key XORed with the packed entry, and the packed entry, stored
+     *  in each slot. */
+    private final long[] _keys, _entries;
+
+}